@@ -0,0 +1,61 @@
+package com.Tbence132545.Melodigram;
+
+import com.Tbence132545.Melodigram.controller.MainWindowController;
+import com.Tbence132545.Melodigram.model.AudioEngine;
+import com.Tbence132545.Melodigram.model.LibraryCatalog;
+import com.Tbence132545.Melodigram.model.StartupTimer;
+import com.Tbence132545.Melodigram.view.LogoCache;
+import com.Tbence132545.Melodigram.view.MainWindow;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Brings the application up. The main window is built on the EDT straight away, while the synthesizer and
+ * soundbank, the library catalog and the logo are prepared in parallel in the background. Every phase is
+ * logged with its time since process start.
+ */
+final class AppStartup {
+
+    private AppStartup() {
+    }
+
+    static void launch() {
+        StartupTimer.mark("main entered");
+        ExecutorService warmUp = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "startup-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<Void> logo = LogoCache.getLogo()
+                .thenRun(() -> StartupTimer.mark("logo ready"));
+        CompletableFuture<Void> audio = CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            boolean ready = AudioEngine.getInstance().warmUp();
+            StartupTimer.markTook(ready ? "synthesizer and soundbank ready" : "synthesizer unavailable", start);
+        }, warmUp);
+        CompletableFuture<Void> library = CompletableFuture.supplyAsync(System::nanoTime, warmUp)
+                .thenCompose(start -> LibraryCatalog.getInstance().refresh()
+                        .thenRun(() -> StartupTimer.markTook("library scanned", start)));
+
+        SwingUtilities.invokeLater(() -> {
+            MainWindow mainWindow = new MainWindow();
+            // The window is painted later by the repaint manager, after this runnable returns
+            mainWindow.setFirstPaintListener(() -> StartupTimer.mark("interactive"));
+            new MainWindowController(mainWindow);
+            StartupTimer.mark("main window shown");
+        });
+
+        CompletableFuture.allOf(logo, audio, library).whenComplete((ignored, error) -> {
+            warmUp.shutdown();
+            if (error != null) {
+                System.err.println("Startup warm-up failed: " + error.getMessage());
+            } else {
+                StartupTimer.mark("background warm-up complete");
+            }
+        });
+    }
+}
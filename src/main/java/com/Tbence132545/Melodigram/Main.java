@@ -15,7 +15,7 @@ import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiUnavailableException;
 public class Main {
         public static void main(String[] args) {
-            MainWindowController mainwincon = new MainWindowController(new MainWindow());
+            AppStartup.launch();
         }
 
     }
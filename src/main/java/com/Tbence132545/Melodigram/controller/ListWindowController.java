@@ -1,27 +1,53 @@
 // java
 package com.Tbence132545.Melodigram.controller;
 
+import com.Tbence132545.Melodigram.model.LibraryCatalog;
 import com.Tbence132545.Melodigram.model.MidiFileService;
+import com.Tbence132545.Melodigram.model.MidiImportService;
 import com.Tbence132545.Melodigram.model.MidiInputSelector;
-import com.Tbence132545.Melodigram.model.MidiPlayer;
 import com.Tbence132545.Melodigram.view.ListWindow;
 import com.Tbence132545.Melodigram.view.MainWindow;
 import com.Tbence132545.Melodigram.view.PianoWindow;
+import com.Tbence132545.Melodigram.view.SongLoadingDialog;
 
 import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiSystem;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class ListWindowController implements ListWindow.MidiFileActionListener {
 
+    private static final int MAX_LISTED_IMPORT_ERRORS = 15;
+    private static final int LOADING_DIALOG_DELAY_MS = 150;
+
     private final ListWindow view;
     private final MidiFileService midiFileService;
+    private final LibraryCatalog catalog = LibraryCatalog.getInstance();
+    private final LibraryCatalog.Listener catalogListener;
 
     public ListWindowController(ListWindow view) {
         this.view = view;
         this.midiFileService = new MidiFileService();
+        this.catalogListener = new LibraryCatalog.Listener() {
+            @Override
+            public void onSongsUpdated(List<LibraryCatalog.SongInfo> songs) {
+                SwingUtilities.invokeLater(() -> view.addOrUpdateSongs(songs));
+            }
+
+            @Override
+            public void onSongsRemoved(List<String> fileNames) {
+                SwingUtilities.invokeLater(() -> view.removeSongs(fileNames));
+            }
+        };
+        catalog.addListener(catalogListener);
+        catalog.startWatching();
         setupEventListeners();
         loadAndDisplayMidiFiles();
     }
@@ -32,11 +58,18 @@ public class ListWindowController implements ListWindow.MidiFileActionListener {
     }
 
     private void loadAndDisplayMidiFiles() {
-        String[] fileNames = midiFileService.getAllMidiFileNames().toArray(new String[0]);
-        view.setMidiFileList(fileNames, this);
+        view.setSongList(List.of(), this);
+        catalog.snapshot().thenAccept(songs -> SwingUtilities.invokeLater(() -> view.showSnapshot(songs)));
+        catalog.refresh();
+    }
+
+    private void returnToList() {
+        catalog.snapshot().thenAccept(songs -> SwingUtilities.invokeLater(() -> view.showSnapshot(songs)));
+        view.setVisible(true);
     }
 
     private void handleBackButton() {
+        catalog.removeListener(catalogListener);
         view.dispose();
         MainWindow mainWin = new MainWindow();
         new MainWindowController(mainWin).openMainWindow();
@@ -44,19 +77,66 @@ public class ListWindowController implements ListWindow.MidiFileActionListener {
 
     private void handleImportButton() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select a MIDI file to import");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("MIDI Files", "mid", "midi"));
+        fileChooser.setDialogTitle("Select MIDI files, folders or zip archives to import");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileFilter(new FileNameExtensionFilter("MIDI Files and Zip Archives", "mid", "midi", "zip"));
 
         if (fileChooser.showOpenDialog(view) == JFileChooser.APPROVE_OPTION) {
+            importFiles(List.of(fileChooser.getSelectedFiles()));
+        }
+    }
+
+    /** Runs the import off the EDT; the catalog adds the new rows once their files appear in the MIDI folder. */
+    private void importFiles(List<File> selection) {
+        MidiImportService importService = new MidiImportService(midiFileService);
+        ProgressMonitor monitor = new ProgressMonitor(view, "Importing MIDI files", "Looking for MIDI files...", 0, 1);
+        monitor.setMillisToDecideToPopup(200);
+
+        CompletableFuture.supplyAsync(() -> {
             try {
-                midiFileService.importMidiFile(fileChooser.getSelectedFile());
-                JOptionPane.showMessageDialog(view, "File imported successfully!");
-                loadAndDisplayMidiFiles();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(view, "Could not import file: " + ex.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+                return importService.importAll(selection, (done, total, fileName) -> SwingUtilities.invokeLater(() -> {
+                    if (monitor.isCanceled()) importService.cancel();
+                    monitor.setMaximum(total);
+                    monitor.setProgress(done);
+                    monitor.setNote(fileName);
+                }));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            monitor.close();
+            if (error != null) {
+                Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(view, "Could not import files: " + cause.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+            } else if (!result.cancelled()) {
+                catalog.refresh();
+                showImportSummary(result);
             }
+        }));
+    }
+
+    private void showImportSummary(MidiImportService.Result result) {
+        StringBuilder message = new StringBuilder();
+        message.append("Imported ").append(result.imported().size()).append(" file(s).");
+        if (!result.duplicates().isEmpty()) {
+            message.append("\nSkipped ").append(result.duplicates().size()).append(" file(s) already in the library.");
+        }
+        if (result.failures().isEmpty()) {
+            JOptionPane.showMessageDialog(view, message.toString());
+            return;
         }
+        message.append("\nCould not import ").append(result.failures().size()).append(" file(s):");
+        int shown = 0;
+        for (MidiImportService.Failure failure : result.failures()) {
+            if (shown++ == MAX_LISTED_IMPORT_ERRORS) {
+                message.append("\n...");
+                break;
+            }
+            message.append("\n").append(failure.source()).append(": ").append(failure.message());
+        }
+        JOptionPane.showMessageDialog(view, message.toString(), "Import Finished With Errors", JOptionPane.WARNING_MESSAGE);
     }
 
     @Override
@@ -80,39 +160,29 @@ public class ListWindowController implements ListWindow.MidiFileActionListener {
         SwingUtilities.invokeLater(() -> selector.setVisible(true));
     }
     private void openPianoWindowForEditing(String midiFileName) {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                MidiFileService.MidiData midiData = midiFileService.loadMidiData(midiFileName);
-                int[] range = MidiPlayer.extractNoteRange(midiData.sequence());
-                PianoWindow pianoWindow = new PianoWindow(range[0], range[1]);
-                PlaybackController playbackController = new PlaybackController(midiData.player(), pianoWindow);
-
-                playbackController.setEditingMode(true);
+        openSong(midiFileName, "Error Opening Editor", midiData -> {
+            PianoWindow pianoWindow = new PianoWindow(midiData.analysis().lowestNote(), midiData.analysis().highestNote());
+            PlaybackController playbackController = new PlaybackController(midiData.player(), midiData.analysis(), pianoWindow);
 
-                pianoWindow.setBackButtonListener(e -> {
-                    midiData.player().stop();
-                    pianoWindow.dispose();
-                    SwingUtilities.invokeLater(() -> view.setVisible(true));
-                });
+            playbackController.setEditingMode(true);
 
-                pianoWindow.setVisible(true);
-                SwingUtilities.invokeLater(() -> view.setVisible(false));
+            pianoWindow.setBackButtonListener(e -> {
+                playbackController.close();
+                pianoWindow.dispose();
+                SwingUtilities.invokeLater(this::returnToList);
+            });
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(view, "Error Opening Editor:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            pianoWindow.setVisible(true);
+            SwingUtilities.invokeLater(() -> view.setVisible(false));
         });
     }
     private void openPianoWindow(String midiFileName, boolean isPractice, HandMode hand, MidiDevice.Info... midiDeviceInfo) {
-        SwingUtilities.invokeLater(() -> {
+        String errorTitle = isPractice ? "Error Initializing Practice" : "Error Opening Piano View";
+        openSong(midiFileName, errorTitle, midiData -> {
             MidiDevice inputDevice = null;
             try {
-                MidiFileService.MidiData midiData = midiFileService.loadMidiData(midiFileName);
-
-                int[] range = MidiPlayer.extractNoteRange(midiData.sequence());
-                PianoWindow pianoWindow = new PianoWindow(range[0], range[1]);
-                PlaybackController playbackController = new PlaybackController(midiData.player(), pianoWindow);
+                PianoWindow pianoWindow = new PianoWindow(midiData.analysis().lowestNote(), midiData.analysis().highestNote());
+                PlaybackController playbackController = new PlaybackController(midiData.player(), midiData.analysis(), pianoWindow);
 
                 if (isPractice) {
                     if (midiDeviceInfo.length == 0) throw new IllegalStateException("MIDI device info required for practice mode.");
@@ -123,12 +193,12 @@ public class ListWindowController implements ListWindow.MidiFileActionListener {
 
                 final MidiDevice finalInputDevice = inputDevice;
                 pianoWindow.setBackButtonListener(e -> {
-                    midiData.player().stop();
+                    playbackController.close();
                     if (finalInputDevice != null && finalInputDevice.isOpen()) {
                         finalInputDevice.close();
                     }
                     pianoWindow.dispose();
-                    SwingUtilities.invokeLater(() -> view.setVisible(true));
+                    SwingUtilities.invokeLater(this::returnToList);
                 });
 
                 pianoWindow.setVisible(true);
@@ -137,9 +207,49 @@ public class ListWindowController implements ListWindow.MidiFileActionListener {
             } catch (Exception e) {
                 e.printStackTrace();
                 if (inputDevice != null && inputDevice.isOpen()) inputDevice.close();
-                String errorTitle = isPractice ? "Error Initializing Practice" : "Error Opening Piano View";
+                midiData.player().close();
                 JOptionPane.showMessageDialog(view, errorTitle + ":\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the song in the background behind a progress dialog that can cancel it,
+     * then builds its window with {@code assemble} on the EDT.
+     */
+    private void openSong(String midiFileName, String errorTitle, Consumer<MidiFileService.MidiData> assemble) {
+        SongLoadingDialog dialog = new SongLoadingDialog(view, midiFileName);
+        CompletableFuture<MidiFileService.MidiData> loading = midiFileService.openSong(midiFileName, new MidiFileService.OpenListener() {
+            @Override
+            public void onStageStarted(MidiFileService.OpenStage stage) {
+                SwingUtilities.invokeLater(() -> dialog.stageStarted(stage));
+            }
+
+            @Override
+            public void onStageFinished(MidiFileService.OpenStage stage) {
+                SwingUtilities.invokeLater(() -> dialog.stageFinished(stage));
+            }
+        });
+        dialog.setCancelListener(e -> loading.cancel(false));
+
+        // Songs already in memory open almost at once, so the dialog only appears if loading takes a moment
+        Timer showDialog = new Timer(LOADING_DIALOG_DELAY_MS, e -> {
+            if (!loading.isDone()) dialog.setVisible(true);
+        });
+        showDialog.setRepeats(false);
+        showDialog.start();
+
+        loading.whenComplete((midiData, error) -> SwingUtilities.invokeLater(() -> {
+            showDialog.stop();
+            dialog.dispose();
+            if (loading.isCancelled()) return;
+            if (error != null) {
+                Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(view, errorTitle + ":\n" + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            assemble.accept(midiData);
+        }));
+    }
+}
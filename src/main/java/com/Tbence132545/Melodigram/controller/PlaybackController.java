@@ -3,6 +3,9 @@ package com.Tbence132545.Melodigram.controller;
 import com.Tbence132545.Melodigram.model.HandAssignmentService; // Correct
 import com.Tbence132545.Melodigram.model.MidiInputReceiver;
 import com.Tbence132545.Melodigram.model.MidiPlayer;
+import com.Tbence132545.Melodigram.model.PlaybackClock;
+import com.Tbence132545.Melodigram.model.SequenceAnalyzer;
+import com.Tbence132545.Melodigram.model.TempoMap;
 import com.Tbence132545.Melodigram.view.AnimationPanel;
 import com.Tbence132545.Melodigram.view.ListWindow;
 import com.Tbence132545.Melodigram.view.PianoWindow;
@@ -25,10 +28,13 @@ public class PlaybackController {
     private final PianoWindow pianoWindow;
     private final AnimationPanel animationPanel;
     private final SeekBar seekBar;
+    private final PlaybackClock clock = new PlaybackClock();
     private final Timer sharedTimer;
+    private final SequenceAnalyzer.Analysis analysis;
+    private final TempoMap tempoMap;
 
     private long startTime;
-    private long lastTickTime;
+    private long practiceCursorMillis = 0;
     private boolean playbackStarted = false;
     private boolean animationPaused = false;
     public boolean isPracticeMode = false;
@@ -39,16 +45,20 @@ public class PlaybackController {
     private final List<Integer> currentlyPressedNotes = new ArrayList<>();
     private final List<Integer> awaitedNotes = new ArrayList<>();
     private final Set<Integer> notesPressedInChordAttempt = new HashSet<>();
+    private final int[] onsetBuffer = new int[128];
 
-    public PlaybackController(MidiPlayer midiPlayer, PianoWindow pianoWindow) {
+    public PlaybackController(MidiPlayer midiPlayer, SequenceAnalyzer.Analysis analysis, PianoWindow pianoWindow) {
         this.assignmentService = new HandAssignmentService(); // Instantiated here
         this.midiPlayer = midiPlayer;
         this.pianoWindow = pianoWindow;
         this.animationPanel = pianoWindow.getAnimationPanel();
-        this.seekBar = new SeekBar(midiPlayer.getSequencer());
+        this.seekBar = new SeekBar(clock, analysis.durationMicros());
+        this.analysis = analysis;
+        this.tempoMap = analysis.tempoMap();
 
-        preprocessNotes(midiPlayer.getSequencer().getSequence());
-        animationPanel.setTotalDurationMillis(midiPlayer.getSequencer().getMicrosecondLength() / 1000);
+        loadNotes();
+        animationPanel.setPlaybackClock(clock);
+        animationPanel.setTotalDurationMillis(analysis.durationMicros() / 1000);
         pianoWindow.addSeekBar(seekBar);
         setupEventListeners();
         this.sharedTimer = new Timer(TIMER_DELAY_MS, e -> onTimerTick());
@@ -57,7 +67,6 @@ public class PlaybackController {
 
     private void initializePlayback() {
         startTime = System.currentTimeMillis();
-        lastTickTime = startTime;
         sharedTimer.start();
     }
 
@@ -65,8 +74,8 @@ public class PlaybackController {
         midiPlayer.setNoteOnListener(this::onNoteOn);
         midiPlayer.setNoteOffListener(this::onNoteOff);
         pianoWindow.setPlayButtonListener(e -> togglePlayback());
-        pianoWindow.setForwardButtonListener(e -> seekAndPreserveState(midiPlayer.getSequencer().getMicrosecondPosition() + 10_000_000));
-        pianoWindow.setBackwardButtonListener(e -> seekAndPreserveState(midiPlayer.getSequencer().getMicrosecondPosition() - 10_000_000));
+        pianoWindow.setForwardButtonListener(e -> seekAndPreserveState(clock.getMicros() + 10_000_000));
+        pianoWindow.setBackwardButtonListener(e -> seekAndPreserveState(clock.getMicros() - 10_000_000));
         pianoWindow.setSaveButtonListener(e -> handleSave());
         seekBar.setSeekListener(this::seekAndPreserveState);
         animationPanel.setOnDragStart(this::handleDragStart);
@@ -75,21 +84,19 @@ public class PlaybackController {
     }
 
     private void onTimerTick() {
-        long now = System.currentTimeMillis();
-        long delta = now - lastTickTime;
-        lastTickTime = now;
         if (!playbackStarted) {
-            handleInitialStartup(now);
+            handleInitialStartup(System.currentTimeMillis());
             return;
         }
         if (animationPaused) {
             return;
         }
         if (isPracticeMode) {
-            handlePracticeModeTick(delta);
+            handlePracticeModeTick();
         } else {
-            handlePlaybackModeTick(delta);
+            handlePlaybackModeTick();
         }
+        animationPanel.tick();
         seekBar.updateProgress();
     }
 
@@ -100,7 +107,7 @@ public class PlaybackController {
                 seekBar.setUserInteractionEnabled(false);
             }
             if (!isPracticeMode && !isEditingMode) {
-                midiPlayer.play();
+                startPlayback();
             }
             playbackStarted = true;
         } else {
@@ -108,15 +115,22 @@ public class PlaybackController {
         }
     }
 
-    private void handlePlaybackModeTick(long delta) {
-        animationPanel.tick(delta);
+    /** Keeps the clock locked to the sequencer while it plays, and stops it when the song ends by itself. */
+    private void handlePlaybackModeTick() {
+        Sequencer sequencer = midiPlayer.getSequencer();
         if (midiPlayer.isPlaying()) {
-            long newTimeMillis = midiPlayer.getSequencer().getMicrosecondPosition() / 1000;
-            animationPanel.updatePlaybackTime(newTimeMillis);
+            clock.sync(sequencer.getMicrosecondPosition());
+        } else if (clock.isRunning()) {
+            clock.pause();
+            clock.seek(sequencer.getMicrosecondPosition());
+            pianoWindow.setPlayButtonText("▶");
         }
     }
 
-    private void handlePracticeModeTick(long delta) {
+    /**
+     * Runs the clock on its own and stops it at every new chord until the player holds exactly those notes.
+     */
+    private void handlePracticeModeTick() {
         boolean chordIsSatisfied = false;
         if (!awaitedNotes.isEmpty()) {
             Set<Integer> currentlyHeldSet = new HashSet<>(currentlyPressedNotes);
@@ -134,17 +148,20 @@ public class PlaybackController {
                 return;
             }
         }
-        long prevTime = animationPanel.getCurrentTimeMillis();
-        animationPanel.tick(delta);
-        long nextTime = animationPanel.getCurrentTimeMillis();
-        List<Integer> onsets = animationPanel.getNotesStartingBetween(
+        clock.start();
+        long prevTime = practiceCursorMillis;
+        long nextTime = clock.getMillis();
+        practiceCursorMillis = nextTime;
+        int onsetCount = animationPanel.getNotesStartingBetween(
                 (prevTime == 0) ? -1 : prevTime,
                 nextTime,
-                this.practiceHandMode
+                this.practiceHandMode,
+                onsetBuffer
         );
-        if (!onsets.isEmpty()) {
+        if (onsetCount > 0) {
+            clock.pause();
             awaitedNotes.clear();
-            awaitedNotes.addAll(onsets);
+            for (int i = 0; i < onsetCount; i++) awaitedNotes.add(onsetBuffer[i]);
             notesPressedInChordAttempt.clear();
             SwingUtilities.invokeLater(() -> {
                 pianoWindow.releaseAllKeys();
@@ -158,8 +175,9 @@ public class PlaybackController {
     private void handleDragStart() {
         wasPlayingBeforeDrag = midiPlayer.isPlaying();
         if (wasPlayingBeforeDrag) {
-            midiPlayer.stop();
+            stopPlayback();
         }
+        clock.pause();
         animationPaused = true;
     }
 
@@ -173,9 +191,9 @@ public class PlaybackController {
         } else if (isPracticeMode) {
             animationPaused = false;
         } else {
-            animationPaused = wasPlayingBeforeDrag;
+            animationPaused = false;
             if (wasPlayingBeforeDrag) {
-                midiPlayer.play();
+                startPlayback();
             }
         }
         wasPlayingBeforeDrag = false;
@@ -187,30 +205,29 @@ public class PlaybackController {
             return;
         }
         boolean wasPlaying = midiPlayer.isPlaying();
-        if (wasPlaying) midiPlayer.stop();
+        if (wasPlaying) stopPlayback();
         updateSequencerPosition(newMicroseconds);
-        if (wasPlaying) midiPlayer.play();
+        if (wasPlaying) startPlayback();
     }
 
     private void updateSequencerPosition(long newMicroseconds) {
-        long clampedMicroseconds = Math.max(0, Math.min(newMicroseconds, midiPlayer.getSequencer().getMicrosecondLength()));
-        midiPlayer.getSequencer().setMicrosecondPosition(clampedMicroseconds);
-        animationPanel.updatePlaybackTime(clampedMicroseconds / 1000);
+        Sequencer sequencer = midiPlayer.getSequencer();
+        long clampedMicroseconds = Math.max(0, Math.min(newMicroseconds, sequencer.getMicrosecondLength()));
+        sequencer.setTickPosition(tempoMap.microsecondsToTick(clampedMicroseconds));
+        clock.seek(clampedMicroseconds);
+        practiceCursorMillis = clampedMicroseconds / 1000;
         resetPracticeState();
-        lastTickTime = System.currentTimeMillis();
+        animationPanel.tick();
         seekBar.updateProgress();
     }
 
     void togglePlayback() {
         if(!isPracticeMode && !isEditingMode){
             if (midiPlayer.isPlaying()) {
-                midiPlayer.stop();
-                animationPaused = false;
+                stopPlayback();
                 pianoWindow.setPlayButtonText("▶");
             } else {
-                midiPlayer.play();
-                animationPaused = true;
-                lastTickTime = System.currentTimeMillis();
+                startPlayback();
                 pianoWindow.setPlayButtonText("||");
             }
         }
@@ -223,8 +240,9 @@ public class PlaybackController {
         seekBar.setUserInteractionEnabled(!enabled);
         if (enabled) {
             if (midiPlayer.isPlaying()) {
-                midiPlayer.stop();
+                stopPlayback();
             }
+            clock.pause();
             animationPaused = true;
             pianoWindow.setPlayButtonText("▶");
             updateSequencerPosition(0);
@@ -237,11 +255,24 @@ public class PlaybackController {
         animationPanel.setPracticeFilterMode(mode);
         pianoWindow.disableButtons(enabled);
         if (enabled) {
-            midiPlayer.stop();
+            stopPlayback();
             resetPracticeState();
         }
     }
 
+    /** Starts the sequencer and lets the clock run from where the sequencer is. */
+    private void startPlayback() {
+        clock.seek(midiPlayer.getSequencer().getMicrosecondPosition());
+        midiPlayer.play();
+        clock.start();
+    }
+
+    private void stopPlayback() {
+        midiPlayer.stop();
+        clock.pause();
+        clock.seek(midiPlayer.getSequencer().getMicrosecondPosition());
+    }
+
     public void setMidiInputDevice(MidiDevice device) {
         try {
             if (midiInputDevice != null && midiInputDevice.isOpen()) midiInputDevice.close();
@@ -262,8 +293,7 @@ public class PlaybackController {
             return;
         }
 
-        Sequence seq = midiPlayer.getSequencer().getSequence();
-        boolean success = assignmentService.saveAssignments(seq, items);
+        boolean success = assignmentService.saveAssignments(analysis.contentHash(), items);
 
         if (success) {
             JOptionPane.showMessageDialog(pianoWindow, "Saved hand assignments successfully.", "Saved", JOptionPane.INFORMATION_MESSAGE);
@@ -272,41 +302,17 @@ public class PlaybackController {
         }
     }
 
-    public void preprocessNotes(Sequence sequence) {
-        try (Sequencer tempSequencer = MidiSystem.getSequencer(false)) {
-            tempSequencer.open();
-            tempSequencer.setSequence(sequence);
-            Map<Integer, List<Long>> activeNotes = new HashMap<>();
-            for (Track track : sequence.getTracks()) {
-                for (int i = 0; i < track.size(); i++) {
-                    MidiEvent event = track.get(i);
-                    MidiMessage msg = event.getMessage();
-                    if (msg instanceof ShortMessage sm) {
-                        int cmd = sm.getCommand();
-                        int note = sm.getData1();
-                        tempSequencer.setTickPosition(event.getTick());
-                        long timeMillis = tempSequencer.getMicrosecondPosition() / 1000;
-                        if (cmd == ShortMessage.NOTE_ON && sm.getData2() > 0) {
-                            activeNotes.computeIfAbsent(note, k -> new ArrayList<>()).add(timeMillis);
-                        } else if (cmd == ShortMessage.NOTE_OFF || (cmd == ShortMessage.NOTE_ON && sm.getData2() == 0)) {
-                            List<Long> onTimes = activeNotes.get(note);
-                            if (onTimes != null && !onTimes.isEmpty()) {
-                                long onTime = onTimes.remove(0);
-                                animationPanel.addFallingNote(note, onTime, timeMillis, pianoWindow.isBlackKey(note));
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        Optional<List<AnimationPanel.HandAssignment>> assignments = assignmentService.loadAssignments(sequence);
-        assignments.ifPresent(animationPanel::applyHandAssignments);
+    private void loadNotes() {
+        animationPanel.setNoteTimeline(analysis.timeline());
     }
 
 
+    /** Stops the animation timer and releases the player's audio devices; called when the window goes away. */
+    public void close() {
+        sharedTimer.stop();
+        midiPlayer.close();
+    }
+
     public PianoWindow getPianoWindow() {
         return this.pianoWindow;
     }
@@ -323,8 +329,6 @@ public class PlaybackController {
         if (isPracticeMode || isEditingMode) {
             return;
         }
-        long playerTimeMillis = midiPlayer.getSequencer().getMicrosecondPosition() / 1000;
-        animationPanel.updatePlaybackTime(playerTimeMillis);
         SwingUtilities.invokeLater(() -> pianoWindow.highlightNote(midiNote));
     }
 
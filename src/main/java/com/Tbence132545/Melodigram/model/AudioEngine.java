@@ -0,0 +1,131 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.util.ArrayDeque;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiChannel;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.midi.Track;
+import javax.sound.midi.Transmitter;
+
+/**
+ * The application's audio devices. One synthesizer is opened once, soundbank and audio line included,
+ * and shared by every song; sequencers are kept open in a small pool and handed out to players.
+ * When a sequencer comes back, only the channels its song used are reset, so the next song starts from clean
+ * channels without cutting off another sequencer that is still playing.
+ */
+public class AudioEngine {
+
+    private static final int MAX_IDLE_SEQUENCERS = 2;
+    private static final int PITCH_BEND_CENTER = 8192;
+    private static final AudioEngine INSTANCE = new AudioEngine();
+
+    private final ArrayDeque<Sequencer> idleSequencers = new ArrayDeque<>();
+    private Synthesizer synthesizer;
+    private Receiver synthesizerReceiver;
+
+    private AudioEngine() {
+    }
+
+    public static AudioEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Opens the synthesizer and one sequencer ahead of time, so the first song does not wait for them.
+     * Returns false if the audio devices could not be opened.
+     */
+    public synchronized boolean warmUp() {
+        try {
+            openSynthesizer();
+            if (idleSequencers.isEmpty()) idleSequencers.push(openSequencer());
+            return true;
+        } catch (MidiUnavailableException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /** The receiver that plays notes on the shared synthesizer. */
+    public synchronized Receiver getSynthesizerReceiver() throws MidiUnavailableException {
+        openSynthesizer();
+        return synthesizerReceiver;
+    }
+
+    /** An open sequencer with nothing connected to it; give it back with {@link #releaseSequencer}. */
+    public synchronized Sequencer acquireSequencer() throws MidiUnavailableException {
+        Sequencer sequencer = idleSequencers.poll();
+        return (sequencer != null) ? sequencer : openSequencer();
+    }
+
+    /**
+     * Stops the sequencer, disconnects it, resets the channels its song used and keeps it for the next song.
+     * The caller must have removed its own listeners.
+     */
+    public synchronized void releaseSequencer(Sequencer sequencer) {
+        sequencer.stop();
+        for (Transmitter transmitter : sequencer.getTransmitters()) {
+            transmitter.close();
+        }
+        resetChannels(usedChannels(sequencer.getSequence()));
+        if (idleSequencers.size() >= MAX_IDLE_SEQUENCERS) {
+            sequencer.close();
+            return;
+        }
+        try {
+            sequencer.setSequence((Sequence) null);
+            sequencer.setTickPosition(0);
+            idleSequencers.push(sequencer);
+        } catch (InvalidMidiDataException e) {
+            sequencer.close();
+        }
+    }
+
+    private void openSynthesizer() throws MidiUnavailableException {
+        if (synthesizer != null) return;
+        Synthesizer synth = MidiSystem.getSynthesizer();
+        synth.open();
+        synthesizerReceiver = synth.getReceiver();
+        synthesizer = synth;
+    }
+
+    private static Sequencer openSequencer() throws MidiUnavailableException {
+        Sequencer sequencer = MidiSystem.getSequencer(false);
+        sequencer.open();
+        return sequencer;
+    }
+
+    /** Which of the 16 MIDI channels the sequence sends channel messages on; none if no sequence was set. */
+    private static boolean[] usedChannels(Sequence sequence) {
+        boolean[] used = new boolean[16];
+        if (sequence == null) return used;
+        for (Track track : sequence.getTracks()) {
+            for (int i = 0; i < track.size(); i++) {
+                if (track.get(i).getMessage() instanceof ShortMessage message && message.getCommand() < 0xF0) {
+                    used[message.getChannel()] = true;
+                }
+            }
+        }
+        return used;
+    }
+
+    /** Puts the given channels back to their power-on state: silent, default controllers, first program, no pitch bend. */
+    private void resetChannels(boolean[] used) {
+        if (synthesizer == null) return;
+        MidiChannel[] channels = synthesizer.getChannels();
+        for (int i = 0; i < channels.length && i < used.length; i++) {
+            MidiChannel channel = channels[i];
+            if (channel == null || !used[i]) continue;
+            channel.allSoundOff();
+            channel.resetAllControllers();
+            channel.programChange(0);
+            channel.setPitchBend(PITCH_BEND_CENTER);
+        }
+    }
+}
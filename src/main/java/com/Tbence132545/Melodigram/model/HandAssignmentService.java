@@ -7,15 +7,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Optional;
-
-import javax.sound.midi.MidiEvent;
-import javax.sound.midi.MidiMessage;
-import javax.sound.midi.Sequence;
-import javax.sound.midi.Track;
+import java.util.concurrent.CompletableFuture;
 
 import com.Tbence132545.Melodigram.view.AnimationPanel;
 import com.google.gson.Gson;
@@ -26,8 +20,8 @@ public class HandAssignmentService {
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private static final Path ASSIGNMENTS_DIR = getStandardApplicationDataDirectory().resolve("assignments");
 
-    public Optional<List<AnimationPanel.HandAssignment>> loadAssignments(Sequence sequence) {
-        Path file = getAssignmentFilePath(sequence);
+    public Optional<List<AnimationPanel.HandAssignment>> loadAssignments(String contentHash) {
+        Path file = getAssignmentFilePath(contentHash);
         if (!Files.exists(file)) {
             return Optional.empty();
         }
@@ -43,14 +37,14 @@ public class HandAssignmentService {
         }
     }
 
-    public boolean saveAssignments(Sequence sequence, List<AnimationPanel.HandAssignment> assignments) {
-        String hash = computeSequenceHash(sequence);
-        Path file = getAssignmentFilePath(hash);
-        HandAssignmentFile data = new HandAssignmentFile(hash, assignments);
+    public boolean saveAssignments(String contentHash, List<AnimationPanel.HandAssignment> assignments) {
+        Path file = getAssignmentFilePath(contentHash);
+        HandAssignmentFile data = new HandAssignmentFile(contentHash, assignments);
         try {
             Files.createDirectories(ASSIGNMENTS_DIR);
             String json = gson.toJson(data);
             Files.writeString(file, json, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            SongManifest.getInstance().setHasAssignments(contentHash, true);
             return true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -58,58 +52,61 @@ public class HandAssignmentService {
         }
     }
 
-    public static boolean assignmentFileExistsFor(String midiFileName) {
-        try {
-            MidiFileService service = new MidiFileService();
-            MidiFileService.MidiData midiData = service.loadMidiData(midiFileName);
-            String hash = computeSequenceHash(midiData.sequence());
-            Path path = ASSIGNMENTS_DIR.resolve(hash + ".json");
-            return Files.exists(path);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+    /**
+     * Applies saved assignments to the notes they were recorded for and returns how many
+     * saved assignments matched no note.
+     */
+    public int applyAssignments(NoteTimeline timeline, List<AnimationPanel.HandAssignment> assignments) {
+        final long TOL_MS = 5;
+        int unmatched = 0;
+        for (AnimationPanel.HandAssignment a : assignments) {
+            byte hand = parseHand(a.hand);
+            if (hand == NoteTimeline.HAND_NONE || timeline.assignHand(a.midiNote, a.on, a.off, TOL_MS, hand) == 0) {
+                unmatched++;
+            }
         }
+        return unmatched;
     }
 
-    private Path getAssignmentFilePath(Sequence sequence) {
-        String hash = computeSequenceHash(sequence);
-        return ASSIGNMENTS_DIR.resolve(hash + ".json");
+    private static byte parseHand(String hand) {
+        if ("LEFT".equals(hand)) return NoteTimeline.HAND_LEFT;
+        if ("RIGHT".equals(hand)) return NoteTimeline.HAND_RIGHT;
+        return NoteTimeline.HAND_NONE;
     }
 
-    private Path getAssignmentFilePath(String hash) {
-        return ASSIGNMENTS_DIR.resolve(hash + ".json");
+    /**
+     * Answers from the song manifest without reading the MIDI file, so it is cheap enough for the EDT. A file the
+     * manifest does not know yet, e.g. one the catalog has not scanned, is analyzed in the background first;
+     * the future then completes on the catalog's thread.
+     */
+    public static CompletableFuture<Boolean> assignmentFileExistsFor(String midiFileName) {
+        MidiFileService service = new MidiFileService();
+        Optional<Boolean> known = findHasAssignments(service, midiFileName);
+        if (known.isPresent()) {
+            return CompletableFuture.completedFuture(known.get());
+        }
+        return LibraryCatalog.getInstance().analyzeLater(midiFileName)
+                .thenApply(ignored -> findHasAssignments(service, midiFileName).orElse(false));
     }
 
-    private static String computeSequenceHash(Sequence sequence) {
+    private static Optional<Boolean> findHasAssignments(MidiFileService service, String midiFileName) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Track track : sequence.getTracks()) {
-                for (int i = 0; i < track.size(); i++) {
-                    MidiEvent ev = track.get(i);
-                    updateDigestWithLong(md, ev.getTick());
-                    MidiMessage msg = ev.getMessage();
-                    md.update(msg.getMessage(), 0, msg.getLength());
-                }
-            }
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-1 unavailable", e);
+            return SongManifest.getInstance().find(service.sourceKeyFor(midiFileName)).map(SongManifest.Entry::hasAssignments);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Optional.of(false);
         }
     }
 
-    private static void updateDigestWithLong(MessageDigest md, long v) {
-        byte[] b = new byte[8];
-        for (int i = 0; i < 8; i++) {
-            b[i] = (byte) (v & 0xFF);
-            v >>= 8;
-        }
-        md.update(b);
+    static boolean hasAssignmentFile(String contentHash) {
+        return Files.exists(getAssignmentFilePath(contentHash));
+    }
+
+    private static Path getAssignmentFilePath(String hash) {
+        return ASSIGNMENTS_DIR.resolve(hash + ".json");
     }
 
-    private static Path getStandardApplicationDataDirectory() {
+    static Path getStandardApplicationDataDirectory() {
         String appName = "Melodigram";
         String os = System.getProperty("os.name").toLowerCase();
         Path baseDir;
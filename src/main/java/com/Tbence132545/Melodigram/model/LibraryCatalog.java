@@ -0,0 +1,325 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-song metadata for the whole library, backed by the song manifest.
+ * A snapshot is built from the manifest without analyzing anything; new or changed files are analyzed in parallel
+ * in the background, and the external MIDI folder is watched so files added, changed or removed there are picked
+ * up on their own.
+ * Listeners receive only what changed.
+ */
+public class LibraryCatalog {
+
+    public enum Difficulty { EASY, MEDIUM, HARD }
+
+    public record SongInfo(String fileName,
+                           boolean analyzed,
+                           long durationMicros,
+                           int noteCount,
+                           int chordCount,
+                           int lowestNote,
+                           int highestNote,
+                           boolean hasAssignments) {
+
+        static SongInfo pending(String fileName) {
+            return new SongInfo(fileName, false, 0, 0, 0, 0, 0, false);
+        }
+
+        static SongInfo from(String fileName, SongManifest.Entry entry) {
+            return new SongInfo(fileName, true, entry.getDurationMicros(), entry.getNoteCount(), entry.getChordCount(),
+                    entry.getLowestNote(), entry.getHighestNote(), entry.hasAssignments());
+        }
+
+        /** Rough difficulty from note density: average notes per second over the whole piece. */
+        public Difficulty difficulty() {
+            double seconds = Math.max(1, durationMicros / 1_000_000.0);
+            double notesPerSecond = noteCount / seconds;
+            if (notesPerSecond < 4) return Difficulty.EASY;
+            if (notesPerSecond < 10) return Difficulty.MEDIUM;
+            return Difficulty.HARD;
+        }
+    }
+
+    public interface Listener {
+        /** Songs that were added to the library or whose metadata changed. */
+        void onSongsUpdated(List<SongInfo> songs);
+
+        void onSongsRemoved(List<String> fileNames);
+    }
+
+    private record Analyzed(String fileName, SongCache.Key key, SongManifest.Stats stats) {}
+
+    private static final int MANIFEST_SAVE_BATCH = 25;
+    private static final int ANALYSIS_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long WATCH_QUIET_PERIOD_MS = 300;
+    private static final LibraryCatalog INSTANCE = new LibraryCatalog();
+
+    private final MidiFileService fileService = new MidiFileService();
+    private final SongManifest manifest = SongManifest.getInstance();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> knownNames = new HashSet<>();
+    // Scans and watcher updates run one at a time on the coordinator; file analysis fans out to the pool.
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(daemonThreads("library-catalog"));
+    private final ExecutorService analysisPool = Executors.newFixedThreadPool(ANALYSIS_THREADS, daemonThreads("library-scan"));
+    private boolean watching = false;
+
+    private LibraryCatalog() {
+    }
+
+    public static LibraryCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The library as currently known; files not analyzed yet are included as pending entries. Listing the
+     * files touches the disk, so it is built in the background, but not on the coordinator: it only needs the
+     * manifest, and must not wait behind a scan that is still analyzing new files.
+     */
+    public CompletableFuture<List<SongInfo>> snapshot() {
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> names = fileService.getAllMidiFileNames();
+            synchronized (knownNames) {
+                knownNames.clear();
+                knownNames.addAll(names);
+            }
+            return infoFor(names);
+        });
+    }
+
+    /** Analyzes files that are new or changed since the last scan, in the background. */
+    public CompletableFuture<Void> refresh() {
+        return CompletableFuture.runAsync(this::scan, coordinator);
+    }
+
+    /** Analyzes one file in the background unless the manifest already knows it; listeners hear about the result. */
+    public CompletableFuture<Void> analyzeLater(String fileName) {
+        return CompletableFuture.runAsync(() -> {
+            if (findInfo(fileName).isEmpty()) analyzeAll(List.of(fileName));
+        }, coordinator);
+    }
+
+    /** Starts watching the external MIDI folder; later calls do nothing. */
+    public synchronized void startWatching() {
+        if (watching) return;
+        watching = true;
+        Thread watcher = new Thread(this::watchExternalFolder, "library-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void scan() {
+        List<String> names = fileService.getAllMidiFileNames();
+        Set<String> present = new HashSet<>(names);
+        List<String> removed = new ArrayList<>();
+        synchronized (knownNames) {
+            for (String known : knownNames) {
+                if (!present.contains(known)) removed.add(known);
+            }
+            knownNames.clear();
+            knownNames.addAll(names);
+        }
+        forgetDeletedFiles(removed);
+        if (!removed.isEmpty()) notifyRemoved(removed);
+
+        List<String> stale = new ArrayList<>();
+        for (String name : names) {
+            if (findInfo(name).isEmpty()) stale.add(name);
+        }
+        analyzeAll(stale);
+    }
+
+    /** Re-examines the named files after the watcher saw them change. */
+    private void applyChanges(Set<String> changed) {
+        Set<String> names = new HashSet<>(fileService.getAllMidiFileNames());
+        List<String> removed = new ArrayList<>();
+        List<String> present = new ArrayList<>();
+        for (String name : changed) {
+            (names.contains(name) ? present : removed).add(name);
+        }
+        synchronized (knownNames) {
+            knownNames.removeAll(removed);
+            knownNames.addAll(present);
+        }
+        // Also covers a deleted external file that was shadowing a bundled song of the same name
+        forgetDeletedFiles(changed);
+        if (!removed.isEmpty()) notifyRemoved(removed);
+
+        List<String> stale = new ArrayList<>();
+        List<SongInfo> known = new ArrayList<>();
+        for (String name : present) {
+            Optional<SongInfo> info = findInfo(name);
+            if (info.isPresent()) known.add(info.get());
+            else stale.add(name);
+        }
+        if (!known.isEmpty()) notifyUpdated(known);
+        analyzeAll(stale);
+    }
+
+    /**
+     * Drops the manifest entries of those files that no longer exist in the external folder, so a deleted song
+     * is not still counted as part of the library, e.g. when the same song is imported again.
+     */
+    private void forgetDeletedFiles(Collection<String> fileNames) {
+        List<String> locations = new ArrayList<>();
+        for (String name : fileNames) {
+            String location = fileService.externalLocationFor(name);
+            if (!Files.exists(Path.of(location))) locations.add(location);
+        }
+        if (!locations.isEmpty()) manifest.forgetAll(locations);
+    }
+
+    /** Analyzes files in parallel, recording and announcing them in batches as they finish. */
+    private void analyzeAll(Collection<String> fileNames) {
+        if (fileNames.isEmpty()) return;
+        List<SongInfo> pending = new ArrayList<>();
+        for (String name : fileNames) pending.add(SongInfo.pending(name));
+        notifyUpdated(pending);
+
+        CompletionService<Analyzed> completion = new ExecutorCompletionService<>(analysisPool);
+        for (String name : fileNames) {
+            completion.submit(() -> {
+                SongCache.Key key = fileService.sourceKeyFor(name);
+                return new Analyzed(name, key, SongManifest.Stats.of(fileService.analyzeForLibrary(name)));
+            });
+        }
+
+        Map<SongCache.Key, SongManifest.Stats> batch = new LinkedHashMap<>();
+        List<String> batchNames = new ArrayList<>();
+        for (int i = 0; i < fileNames.size(); i++) {
+            try {
+                Analyzed result = completion.take().get();
+                batch.put(result.key(), result.stats());
+                batchNames.add(result.fileName());
+            } catch (ExecutionException e) {
+                System.err.println("Skipping unreadable MIDI file: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.size() >= MANIFEST_SAVE_BATCH) {
+                flush(batch, batchNames);
+            }
+        }
+        flush(batch, batchNames);
+    }
+
+    private void flush(Map<SongCache.Key, SongManifest.Stats> batch, List<String> batchNames) {
+        if (batch.isEmpty()) return;
+        manifest.recordAll(batch);
+        notifyUpdated(infoFor(batchNames));
+        batch.clear();
+        batchNames.clear();
+    }
+
+    private void watchExternalFolder() {
+        Path dir = fileService.getExternalMidiDir();
+        try (WatchService watchService = dir.getFileSystem().newWatchService()) {
+            Files.createDirectories(dir);
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            while (true) {
+                Set<String> changed = new HashSet<>();
+                boolean overflow = collectEvents(watchService.take(), changed);
+                // A file being copied raises several events; wait until the folder has been quiet for a moment.
+                WatchKey key;
+                while ((key = watchService.poll(WATCH_QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collectEvents(key, changed);
+                }
+                if (overflow) {
+                    coordinator.submit(this::scan);
+                } else if (!changed.isEmpty()) {
+                    coordinator.submit(() -> applyChanges(changed));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Not watching the external MIDI folder: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Adds the MIDI file names from the key's events to {@code changed}; returns true if events were lost. */
+    private boolean collectEvents(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else if (event.context() instanceof Path path) {
+                String name = path.getFileName().toString();
+                if (MidiFileService.isMidiFileName(name)) changed.add(name);
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    private List<SongInfo> infoFor(Collection<String> fileNames) {
+        List<SongInfo> songs = new ArrayList<>();
+        for (String name : fileNames) {
+            songs.add(findInfo(name).orElseGet(() -> SongInfo.pending(name)));
+        }
+        return songs;
+    }
+
+    private Optional<SongInfo> findInfo(String fileName) {
+        try {
+            return manifest.find(fileService.sourceKeyFor(fileName)).map(entry -> SongInfo.from(fileName, entry));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void notifyUpdated(List<SongInfo> songs) {
+        for (Listener listener : listeners) {
+            listener.onSongsUpdated(songs);
+        }
+    }
+
+    private void notifyRemoved(List<String> fileNames) {
+        for (Listener listener : listeners) {
+            listener.onSongsRemoved(fileNames);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,19 +1,29 @@
 // java
 package com.Tbence132545.Melodigram.model;
 
+import com.Tbence132545.Melodigram.view.AnimationPanel;
+
+import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.Sequence;
-import java.io.File;
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -24,40 +34,225 @@ import java.util.stream.Stream;
  */
 public class MidiFileService {
 
-    public record MidiData(MidiPlayer player, Sequence sequence) {}
+    public record MidiData(MidiPlayer player, Sequence sequence, SequenceAnalyzer.Analysis analysis) {}
+
+    public enum OpenStage {
+        PARSING("Reading MIDI file"),
+        ANALYZING("Analyzing notes"),
+        LOADING_ASSIGNMENTS("Loading hand assignments"),
+        PREPARING_AUDIO("Preparing audio");
+
+        private final String label;
+
+        OpenStage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Told about each stage of {@link #openSong}; called on background threads. */
+    public interface OpenListener {
+        void onStageStarted(OpenStage stage);
+
+        void onStageFinished(OpenStage stage);
+    }
 
     private static final String INTERNAL_MIDI_DIR = "midi/";
+    private static final long MAX_CACHED_NOTES = 1_000_000;
+    private static final SongCache SONG_CACHE = new SongCache(MAX_CACHED_NOTES);
+    private static final ExecutorService OPEN_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "song-open");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final Path externalMidiDir;
+    private final TimelineCache timelineCache = new TimelineCache();
+    private final HandAssignmentService assignmentService = new HandAssignmentService();
 
     public MidiFileService() {
         this.externalMidiDir = Paths.get(System.getProperty("user.home"), ".Melodigram", "midi");
     }
 
+    public static boolean isMidiFileName(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".mid") || lower.endsWith(".midi");
+    }
+
+    public Path getExternalMidiDir() {
+        return externalMidiDir;
+    }
+
+    /** The cache shared by all instances; exposed so callers can read its hit and miss counters. */
+    public static SongCache getSongCache() {
+        return SONG_CACHE;
+    }
+
+    /**
+     * Opens a song for playback without blocking the caller. Reading and analyzing the file, loading its hand
+     * assignments and opening the audio devices run on background threads, in parallel where they do not depend
+     * on each other; assignments are loaded right away when the manifest already knows the file's content hash.
+     * Cancelling the returned future skips the stages not started yet and releases the audio devices.
+     */
+    public CompletableFuture<MidiData> openSong(String midiFileName, OpenListener listener) {
+        CompletableFuture<MidiData> result = new CompletableFuture<>();
+
+        CompletableFuture<MidiPlayer> audio = CompletableFuture.supplyAsync(
+                () -> runStage(OpenStage.PREPARING_AUDIO, listener, result, MidiPlayer::new), OPEN_EXECUTOR);
+        CompletableFuture<SongCache.Entry> song = CompletableFuture.supplyAsync(
+                () -> loadSongInStages(midiFileName, listener, result), OPEN_EXECUTOR);
+        CompletableFuture<String> contentHash = knownContentHash(midiFileName)
+                .map(CompletableFuture::completedFuture)
+                .orElseGet(() -> song.thenApply(entry -> entry.analysis().contentHash()));
+        CompletableFuture<Optional<List<AnimationPanel.HandAssignment>>> assignments = contentHash.thenApplyAsync(
+                hash -> runStage(OpenStage.LOADING_ASSIGNMENTS, listener, result, () -> assignmentService.loadAssignments(hash)),
+                OPEN_EXECUTOR);
+
+        CompletableFuture.allOf(audio, song, assignments).whenComplete((ignored, error) -> {
+            if (error == null && !result.isDone()) {
+                try {
+                    if (result.complete(assemble(audio.join(), song.join(), assignments.join()))) return;
+                } catch (InvalidMidiDataException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            } else if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+            // Failed or cancelled: nobody will use the audio devices opened for this song
+            if (!audio.isCompletedExceptionally()) audio.join().close();
+        });
+        return result;
+    }
+
+    private MidiData assemble(MidiPlayer player, SongCache.Entry song,
+                              Optional<List<AnimationPanel.HandAssignment>> assignments) throws InvalidMidiDataException {
+        player.setSequence(song.sequence());
+        SequenceAnalyzer.Analysis analysis = song.analysis().withClearedHands();
+        assignments.ifPresent(saved -> {
+            int unmatched = assignmentService.applyAssignments(analysis.timeline(), saved);
+            if (unmatched > 0) {
+                System.err.println(unmatched + " of " + saved.size() + " saved hand assignments did not match any note.");
+            }
+        });
+        return new MidiData(player, song.sequence(), analysis);
+    }
+
+    /** Same as {@link #loadSong(String)}, reporting parsing and analysis as separate stages. */
+    private SongCache.Entry loadSongInStages(String midiFileName, OpenListener listener, Future<?> owner) {
+        SongCache.Key key;
+        try {
+            key = sourceKeyFor(midiFileName);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        SongCache.Entry cached = SONG_CACHE.get(key);
+        if (cached != null) {
+            listener.onStageFinished(OpenStage.PARSING);
+            listener.onStageFinished(OpenStage.ANALYZING);
+            return cached;
+        }
+        Sequence sequence = runStage(OpenStage.PARSING, listener, owner, () -> readSequence(midiFileName));
+        SequenceAnalyzer.Analysis analysis = runStage(OpenStage.ANALYZING, listener, owner, () -> loadAnalysis(key, sequence));
+        SongCache.Entry song = new SongCache.Entry(sequence, analysis);
+        SONG_CACHE.put(key, song);
+        return song;
+    }
+
+    private Optional<String> knownContentHash(String midiFileName) {
+        try {
+            return SongManifest.getInstance().findContentHash(sourceKeyFor(midiFileName));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
 
-    public void importMidiFile(File sourceFile) throws IOException {
-        Files.createDirectories(externalMidiDir);
-        Path destinationPath = externalMidiDir.resolve(sourceFile.getName());
-        Files.copy(sourceFile.toPath(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
+    private static <T> T runStage(OpenStage stage, OpenListener listener, Future<?> owner, Callable<T> work) {
+        if (owner.isDone()) throw new CancellationException();
+        listener.onStageStarted(stage);
+        try {
+            T value = work.call();
+            listener.onStageFinished(stage);
+            return value;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
     }
 
+    /**
+     * Returns the parsed and analyzed song, from the cache when the file has not changed since it was last read.
+     * The cached analysis is shared, so callers that assign hands must work on {@code withClearedHands()}.
+     */
+    public SongCache.Entry loadSong(String midiFileName) throws InvalidMidiDataException, IOException {
+        SongCache.Key key = sourceKeyFor(midiFileName);
+        SongCache.Entry song = SONG_CACHE.get(key);
+        if (song == null) {
+            Sequence sequence = readSequence(midiFileName);
+            song = new SongCache.Entry(sequence, loadAnalysis(key, sequence));
+            SONG_CACHE.put(key, song);
+        }
+        return song;
+    }
 
-    public MidiData loadMidiData(String midiFileName) throws Exception {
-        MidiPlayer midiPlayer = new MidiPlayer();
-        Sequence sequence;
+    /**
+     * Reads the analysis from the on-disk timeline cache when the manifest knows this file's content hash,
+     * otherwise analyzes the sequence and stores the result for next time.
+     */
+    private SequenceAnalyzer.Analysis loadAnalysis(SongCache.Key key, Sequence sequence) {
+        Optional<SequenceAnalyzer.Analysis> cached = SongManifest.getInstance().findContentHash(key)
+                .flatMap(timelineCache::load);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SequenceAnalyzer.Analysis analysis = SequenceAnalyzer.analyze(sequence);
+        timelineCache.store(analysis);
+        SongManifest.getInstance().record(key, analysis);
+        return analysis;
+    }
+
+    /**
+     * Parses and analyzes a song for the library catalog. The result goes to the on-disk timeline cache
+     * so a later open is warm, but the parsed song is not kept in memory.
+     */
+    public SequenceAnalyzer.Analysis analyzeForLibrary(String midiFileName) throws InvalidMidiDataException, IOException {
+        SequenceAnalyzer.Analysis analysis = SequenceAnalyzer.analyze(readSequence(midiFileName));
+        timelineCache.store(analysis);
+        return analysis;
+    }
 
+    /** Identifies the file a song name resolves to, including its size and modification time. */
+    public SongCache.Key sourceKeyFor(String midiFileName) throws IOException {
         Path externalFile = externalMidiDir.resolve(midiFileName);
         if (Files.exists(externalFile)) {
-            midiPlayer.loadMidiFromFile(externalFile.toAbsolutePath().toString());
-            sequence = MidiSystem.getSequence(externalFile.toFile());
-        } else {
-            String resourcePath = INTERNAL_MIDI_DIR + midiFileName;
-            midiPlayer.loadMidiFromResources(resourcePath);
-            try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
-                if (is == null) throw new FileNotFoundException("Cannot find resource: " + resourcePath);
-                sequence = MidiSystem.getSequence(is);
-            }
+            return new SongCache.Key(externalLocationFor(midiFileName),
+                    Files.getLastModifiedTime(externalFile).toMillis(), Files.size(externalFile));
+        }
+        String resourcePath = INTERNAL_MIDI_DIR + midiFileName;
+        URL url = getClass().getClassLoader().getResource(resourcePath);
+        if (url == null) throw new FileNotFoundException("Cannot find resource: " + resourcePath);
+        URLConnection connection = url.openConnection();
+        return new SongCache.Key(SongManifest.RESOURCE_PREFIX + resourcePath, connection.getLastModified(), connection.getContentLengthLong());
+    }
+
+    /** The location a song in the external MIDI folder is recorded under, whether or not the file exists. */
+    public String externalLocationFor(String midiFileName) {
+        return externalMidiDir.resolve(midiFileName).toAbsolutePath().toString();
+    }
+
+    /**
+     * Parses a MIDI file from the external folder, or from the bundled resources if it is not there.
+     */
+    public Sequence readSequence(String midiFileName) throws InvalidMidiDataException, IOException {
+        Path externalFile = externalMidiDir.resolve(midiFileName);
+        if (Files.exists(externalFile)) {
+            return MidiSystem.getSequence(externalFile.toFile());
+        }
+        String resourcePath = INTERNAL_MIDI_DIR + midiFileName;
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            if (is == null) throw new FileNotFoundException("Cannot find resource: " + resourcePath);
+            return MidiSystem.getSequence(new BufferedInputStream(is));
         }
-        return new MidiData(midiPlayer, sequence);
     }
 
     public List<String> getAllMidiFileNames() {
@@ -76,7 +271,7 @@ public class MidiFileService {
         try (Stream<Path> paths = Files.walk(externalMidiDir, 1)) {
             return paths.filter(Files::isRegularFile)
                     .map(path -> path.getFileName().toString())
-                    .filter(name -> name.toLowerCase().endsWith(".mid") || name.toLowerCase().endsWith(".midi"))
+                    .filter(MidiFileService::isMidiFileName)
                     .collect(Collectors.toList());
         } catch (IOException e) {
             System.err.println("Error reading external MIDI folder: " + e.getMessage());
@@ -95,7 +290,7 @@ public class MidiFileService {
                     return jar.stream()
                             .map(JarEntry::getName)
                             .filter(name -> name.startsWith(INTERNAL_MIDI_DIR) && !name.endsWith("/"))
-                            .filter(name -> name.toLowerCase().endsWith(".mid") || name.toLowerCase().endsWith(".midi"))
+                            .filter(MidiFileService::isMidiFileName)
                             .map(name -> name.substring(INTERNAL_MIDI_DIR.length()))
                             .collect(Collectors.toList());
                 }
@@ -103,7 +298,7 @@ public class MidiFileService {
                 try (Stream<Path> stream = Files.list(Paths.get(url.toURI()))) {
                     return stream.filter(Files::isRegularFile)
                             .map(p -> p.getFileName().toString())
-                            .filter(n -> n.toLowerCase().endsWith(".mid") || n.toLowerCase().endsWith(".midi"))
+                            .filter(MidiFileService::isMidiFileName)
                             .collect(Collectors.toList());
                 }
             }
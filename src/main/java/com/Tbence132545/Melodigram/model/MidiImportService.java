@@ -0,0 +1,305 @@
+package com.Tbence132545.Melodigram.model;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports many MIDI files at once, from folders (searched recursively), zip archives or single files.
+ * Files are checked, parsed and analyzed in parallel, and songs whose content is already in the library are skipped.
+ * Each file is first written under a temporary name; the whole batch is then recorded in the song manifest and
+ * moved into the MIDI folder, so the library shows the new songs without analyzing them a second time.
+ */
+public class MidiImportService {
+
+    public interface ProgressListener {
+        void onProgress(int done, int total, String fileName);
+    }
+
+    public record Failure(String source, String message) {}
+
+    public record Result(List<String> imported, List<String> duplicates, List<Failure> failures, boolean cancelled) {}
+
+    private static final byte[] MIDI_HEADER = {'M', 'T', 'h', 'd'};
+    private static final String STAGING_SUFFIX = ".part";
+    private static final int IMPORT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final MidiFileService fileService;
+    private final TimelineCache timelineCache = new TimelineCache();
+    private volatile boolean cancelled = false;
+
+    public MidiImportService(MidiFileService fileService) {
+        this.fileService = fileService;
+    }
+
+    /** Stops an import in progress; files already staged are discarded. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /** Imports the given files, folders and zip archives. Blocks until done; call it off the EDT. */
+    public Result importAll(List<File> selection, ProgressListener listener) throws IOException {
+        Path targetDir = fileService.getExternalMidiDir();
+        Files.createDirectories(targetDir);
+
+        List<ZipFile> archives = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(IMPORT_THREADS, r -> {
+            Thread thread = new Thread(r, "midi-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Candidate> candidates = collectCandidates(selection, archives, failures);
+            Set<String> knownHashes = ConcurrentHashMap.newKeySet();
+            knownHashes.addAll(SongManifest.getInstance().contentHashesOfExistingFiles());
+            Set<String> takenNames = new HashSet<>(fileService.getAllMidiFileNames());
+
+            CompletionService<Outcome> completion = new ExecutorCompletionService<>(pool);
+            for (Candidate candidate : candidates) {
+                completion.submit(() -> stage(candidate, targetDir, knownHashes, takenNames));
+            }
+
+            List<Staged> staged = new ArrayList<>();
+            List<String> duplicates = new ArrayList<>();
+            for (int done = 1; done <= candidates.size(); done++) {
+                Outcome outcome = completion.take().get();
+                if (outcome instanceof Staged s) staged.add(s);
+                else if (outcome instanceof Duplicate d) duplicates.add(d.source());
+                else if (outcome instanceof Failed f) failures.add(new Failure(f.source(), f.message()));
+                listener.onProgress(done, candidates.size(), outcome.source());
+            }
+
+            if (cancelled) {
+                for (Staged s : staged) Files.deleteIfExists(s.stagingFile());
+                return new Result(List.of(), duplicates, failures, true);
+            }
+            return new Result(publish(staged, targetDir, failures), duplicates, failures, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            for (ZipFile archive : archives) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private List<Candidate> collectCandidates(List<File> selection, List<ZipFile> archives, List<Failure> failures) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (File file : selection) {
+            Path path = file.toPath();
+            try {
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> paths = Files.walk(path)) {
+                        paths.filter(Files::isRegularFile)
+                                .filter(p -> MidiFileService.isMidiFileName(p.getFileName().toString()))
+                                .forEach(p -> candidates.add(new FileCandidate(p)));
+                    }
+                } else if (file.getName().toLowerCase().endsWith(".zip")) {
+                    ZipFile archive = new ZipFile(file);
+                    archives.add(archive);
+                    archive.stream()
+                            .filter(entry -> !entry.isDirectory() && MidiFileService.isMidiFileName(entry.getName()))
+                            .forEach(entry -> candidates.add(new ZipCandidate(archive, entry)));
+                } else if (MidiFileService.isMidiFileName(file.getName())) {
+                    candidates.add(new FileCandidate(path));
+                } else {
+                    failures.add(new Failure(file.getName(), "Not a MIDI file or zip archive"));
+                }
+            } catch (IOException e) {
+                failures.add(new Failure(file.getName(), e.getMessage()));
+            }
+        }
+        return candidates;
+    }
+
+    /** Parses and analyzes one file and copies it to a staging file, unless its content is already known. */
+    private Outcome stage(Candidate candidate, Path targetDir, Set<String> knownHashes, Set<String> takenNames) {
+        String source = candidate.source();
+        if (cancelled) return new Failed(source, "Cancelled");
+        String hash = null;
+        try {
+            SequenceAnalyzer.Analysis analysis = SequenceAnalyzer.analyze(candidate.parse());
+            hash = analysis.contentHash();
+            if (!knownHashes.add(hash)) {
+                return new Duplicate(source);
+            }
+            String name = reserveName(candidate.fileName(), takenNames);
+            Path stagingFile = targetDir.resolve(name + STAGING_SUFFIX);
+            candidate.copyTo(stagingFile);
+            timelineCache.store(analysis);
+            // The timeline is in the cache now; keep only what the manifest needs until the batch is published
+            return new Staged(source, name, stagingFile, SongManifest.Stats.of(analysis));
+        } catch (IOException | InvalidMidiDataException | RuntimeException e) {
+            if (hash != null) knownHashes.remove(hash);
+            return new Failed(source, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /** Records all staged songs in the manifest with one write, then moves them into the MIDI folder. */
+    private List<String> publish(List<Staged> staged, Path targetDir, List<Failure> failures) throws IOException {
+        Map<SongCache.Key, SongManifest.Stats> stats = new LinkedHashMap<>();
+        for (Staged s : staged) {
+            // A rename keeps size and modification time, so the key already matches the final file.
+            Path target = targetDir.resolve(s.name());
+            SongCache.Key key = new SongCache.Key(target.toAbsolutePath().toString(),
+                    Files.getLastModifiedTime(s.stagingFile()).toMillis(), Files.size(s.stagingFile()));
+            stats.put(key, s.stats());
+        }
+        SongManifest.getInstance().recordAll(stats);
+
+        List<String> imported = new ArrayList<>();
+        for (Staged s : staged) {
+            try {
+                Files.move(s.stagingFile(), targetDir.resolve(s.name()), StandardCopyOption.ATOMIC_MOVE);
+                imported.add(s.name());
+            } catch (IOException e) {
+                Files.deleteIfExists(s.stagingFile());
+                failures.add(new Failure(s.source(), e.getMessage()));
+            }
+        }
+        return imported;
+    }
+
+    /** Picks a file name not used by any song yet, adding " (2)", " (3)"... before the extension if needed. */
+    private static String reserveName(String fileName, Set<String> takenNames) {
+        synchronized (takenNames) {
+            String name = fileName;
+            int dot = fileName.lastIndexOf('.');
+            for (int n = 2; !takenNames.add(name); n++) {
+                name = fileName.substring(0, dot) + " (" + n + ")" + fileName.substring(dot);
+            }
+            return name;
+        }
+    }
+
+    private static void checkHeader(byte[] header, int length, String source) throws InvalidMidiDataException {
+        for (int i = 0; i < MIDI_HEADER.length; i++) {
+            if (i >= length || header[i] != MIDI_HEADER[i]) {
+                throw new InvalidMidiDataException(source + " is not a standard MIDI file");
+            }
+        }
+    }
+
+    private sealed interface Outcome permits Staged, Duplicate, Failed {
+        String source();
+    }
+
+    private record Staged(String source, String name, Path stagingFile, SongManifest.Stats stats) implements Outcome {}
+
+    private record Duplicate(String source) implements Outcome {}
+
+    private record Failed(String source, String message) implements Outcome {}
+
+    private interface Candidate {
+        /** Where the file came from, for progress and error reports. */
+        String source();
+
+        String fileName();
+
+        Sequence parse() throws InvalidMidiDataException, IOException;
+
+        void copyTo(Path target) throws IOException;
+    }
+
+    private record FileCandidate(Path path) implements Candidate {
+        @Override
+        public String source() {
+            return path.toString();
+        }
+
+        @Override
+        public String fileName() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public Sequence parse() throws InvalidMidiDataException, IOException {
+            byte[] header = new byte[MIDI_HEADER.length];
+            int length;
+            try (InputStream in = Files.newInputStream(path)) {
+                length = in.readNBytes(header, 0, header.length);
+            }
+            checkHeader(header, length, fileName());
+            return MidiSystem.getSequence(path.toFile());
+        }
+
+        @Override
+        public void copyTo(Path target) throws IOException {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                         StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    /** A zip entry is read straight from the archive each time, so no whole entry is held in memory. */
+    private record ZipCandidate(ZipFile archive, ZipEntry entry) implements Candidate {
+        @Override
+        public String source() {
+            return Path.of(archive.getName()).getFileName() + "/" + entry.getName();
+        }
+
+        @Override
+        public String fileName() {
+            String name = entry.getName();
+            return name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        }
+
+        @Override
+        public Sequence parse() throws InvalidMidiDataException, IOException {
+            try (InputStream in = new BufferedInputStream(archive.getInputStream(entry))) {
+                byte[] header = new byte[MIDI_HEADER.length];
+                in.mark(header.length);
+                int length = in.readNBytes(header, 0, header.length);
+                checkHeader(header, length, fileName());
+                in.reset();
+                return MidiSystem.getSequence(in);
+            }
+        }
+
+        @Override
+        public void copyTo(Path target) throws IOException {
+            try (InputStream in = archive.getInputStream(entry)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
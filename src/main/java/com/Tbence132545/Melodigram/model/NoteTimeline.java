@@ -0,0 +1,341 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * All notes of a song stored as parallel primitive arrays, sorted by onset.
+ * Pitch, timing and key colour are fixed once built; only the hand assignment can change.
+ */
+public class NoteTimeline {
+
+    public static final byte HAND_NONE = 0;
+    public static final byte HAND_LEFT = 1;
+    public static final byte HAND_RIGHT = 2;
+    /** Hand filter that accepts every note, assigned or not. */
+    public static final byte ANY_HAND = -1;
+
+    public static final byte FLAG_BLACK_KEY = 1;
+
+    public static final int KEY_COUNT = 128;
+
+    public static final NoteTimeline EMPTY = new NoteTimeline(new int[0], new long[0], new long[0], new byte[0], new byte[0], 0);
+
+    private static final boolean[] BLACK_KEY_PATTERN = {false, true, false, true, false, false, true, false, true, false, true, false};
+
+    private final int[] pitch;
+    private final long[] on;
+    private final long[] off;
+    private final byte[] flags;
+    private final byte[] hand;
+    private final long maxDuration;
+    private final int[][] notesByPitch;
+    // Built on demand by notesForHand and dropped by setHand, possibly on different threads
+    private volatile int[] leftHandNotes;
+    private volatile int[] rightHandNotes;
+
+    private NoteTimeline(int[] pitch, long[] on, long[] off, byte[] flags, byte[] hand, long maxDuration) {
+        this.pitch = pitch;
+        this.on = on;
+        this.off = off;
+        this.flags = flags;
+        this.hand = hand;
+        this.maxDuration = maxDuration;
+        this.notesByPitch = groupByPitch(pitch);
+    }
+
+    /** Shares the note data of {@code source} with a fresh, unassigned set of hands. */
+    private NoteTimeline(NoteTimeline source) {
+        this.pitch = source.pitch;
+        this.on = source.on;
+        this.off = source.off;
+        this.flags = source.flags;
+        this.hand = new byte[source.pitch.length];
+        this.maxDuration = source.maxDuration;
+        this.notesByPitch = source.notesByPitch;
+    }
+
+    /** Per key, the indices of that key's notes in onset order. */
+    private static int[][] groupByPitch(int[] pitch) {
+        int[] counts = new int[KEY_COUNT];
+        for (int p : pitch) counts[p]++;
+        int[][] byPitch = new int[KEY_COUNT][];
+        for (int p = 0; p < KEY_COUNT; p++) byPitch[p] = new int[counts[p]];
+        int[] fill = new int[KEY_COUNT];
+        for (int i = 0; i < pitch.length; i++) {
+            int p = pitch[i];
+            byPitch[p][fill[p]++] = i;
+        }
+        return byPitch;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static boolean isBlackPitch(int midiNote) {
+        return BLACK_KEY_PATTERN[Math.floorMod(midiNote, 12)];
+    }
+
+    int serializedSize() {
+        return 4 + pitch.length * (1 + 8 + 8 + 1);
+    }
+
+    /** Writes the note data (not the hand assignments) in onset order. */
+    void writeTo(ByteBuffer out) {
+        int n = pitch.length;
+        out.putInt(n);
+        for (int p : pitch) out.put((byte) p);
+        out.asLongBuffer().put(on);
+        out.position(out.position() + n * 8);
+        out.asLongBuffer().put(off);
+        out.position(out.position() + n * 8);
+        out.put(flags);
+    }
+
+    static NoteTimeline readFrom(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || (long) n * (1 + 8 + 8 + 1) > in.remaining()) {
+            throw new IllegalArgumentException("Bad note count " + n);
+        }
+        int[] pitch = new int[n];
+        long[] on = new long[n];
+        long[] off = new long[n];
+        byte[] flags = new byte[n];
+        for (int i = 0; i < n; i++) pitch[i] = in.get() & 0x7F;
+        in.asLongBuffer().get(on);
+        in.position(in.position() + n * 8);
+        in.asLongBuffer().get(off);
+        in.position(in.position() + n * 8);
+        in.get(flags);
+        long maxDuration = 0;
+        for (int i = 0; i < n; i++) maxDuration = Math.max(maxDuration, off[i] - on[i]);
+        return new NoteTimeline(pitch, on, off, flags, new byte[n], maxDuration);
+    }
+
+    /**
+     * Returns a timeline with the same notes and no hand assignments. Cheap, since the note arrays are shared;
+     * used to give every playback session its own assignments.
+     */
+    public NoteTimeline withClearedHands() {
+        return new NoteTimeline(this);
+    }
+
+    public int size() {
+        return pitch.length;
+    }
+
+    public int getPitch(int index) {
+        return pitch[index];
+    }
+
+    public long getOn(int index) {
+        return on[index];
+    }
+
+    public long getOff(int index) {
+        return off[index];
+    }
+
+    public boolean isBlackKey(int index) {
+        return (flags[index] & FLAG_BLACK_KEY) != 0;
+    }
+
+    public byte getHand(int index) {
+        return hand[index];
+    }
+
+    public void setHand(int index, byte value) {
+        if (hand[index] == value) return;
+        hand[index] = value;
+        leftHandNotes = null;
+        rightHandNotes = null;
+    }
+
+    /** Index of the first note whose onset is at or after the given time. */
+    public int firstOnsetAtOrAfter(long millis) {
+        int lo = 0;
+        int hi = on.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (on[mid] < millis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Index of the first note whose onset is strictly after the given time. */
+    public int firstOnsetAfter(long millis) {
+        int lo = 0;
+        int hi = on.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (on[mid] <= millis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Writes the pitches of the notes starting in {@code (startExclusive, endInclusive]} that match the
+     * hand filter into {@code out} and returns how many were written (at most {@code out.length}).
+     */
+    public int pitchesStartingBetween(long startExclusive, long endInclusive, byte handFilter, int[] out) {
+        if (endInclusive < startExclusive) return 0;
+        int count = 0;
+        if (handFilter == ANY_HAND) {
+            int end = firstOnsetAfter(endInclusive);
+            for (int i = firstOnsetAfter(startExclusive); i < end && count < out.length; i++) {
+                out[count++] = pitch[i];
+            }
+            return count;
+        }
+        int[] notes = notesForHand(handFilter);
+        int end = firstSubsetOnsetAfter(notes, endInclusive);
+        for (int k = firstSubsetOnsetAfter(notes, startExclusive); k < end && count < out.length; k++) {
+            out[count++] = pitch[notes[k]];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the most recently started note on this key that is still sounding
+     * at the given time, or -1 if the key is silent. Notes on one key can overlap, so a short
+     * late note may have ended while an earlier, longer one still sounds.
+     */
+    public int noteSoundingAt(int midiNote, long millis) {
+        if (midiNote < 0 || midiNote >= KEY_COUNT) return -1;
+        int[] notes = notesByPitch[midiNote];
+        for (int k = firstSubsetOnsetAfter(notes, millis) - 1; k >= 0; k--) {
+            int index = notes[k];
+            // No note started before this can last long enough to still be sounding
+            if (on[index] < millis - maxDuration) break;
+            if (millis < off[index]) return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Assigns a hand to every note on this key whose on and off times are both within
+     * {@code toleranceMillis} of the given ones. Returns how many notes were assigned.
+     */
+    public int assignHand(int midiNote, long onMillis, long offMillis, long toleranceMillis, byte value) {
+        if (midiNote < 0 || midiNote >= KEY_COUNT) return 0;
+        int[] notes = notesByPitch[midiNote];
+        int matched = 0;
+        for (int k = firstSubsetOnsetAfter(notes, onMillis - toleranceMillis - 1); k < notes.length; k++) {
+            int index = notes[k];
+            if (on[index] > onMillis + toleranceMillis) break;
+            if (Math.abs(off[index] - offMillis) <= toleranceMillis) {
+                setHand(index, value);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Onset-ordered indices of the notes assigned to one hand, rebuilt after assignments change.
+     * The array is filled completely before it is published, so other threads never see it half built.
+     */
+    private int[] notesForHand(byte handFilter) {
+        int[] notes = (handFilter == HAND_LEFT) ? leftHandNotes : rightHandNotes;
+        if (notes != null) return notes;
+
+        int count = 0;
+        for (byte h : hand) {
+            if (h == handFilter) count++;
+        }
+        notes = new int[count];
+        int k = 0;
+        for (int i = 0; i < hand.length; i++) {
+            if (hand[i] == handFilter) notes[k++] = i;
+        }
+        if (handFilter == HAND_LEFT) leftHandNotes = notes;
+        else rightHandNotes = notes;
+        return notes;
+    }
+
+    private int firstSubsetOnsetAfter(int[] notes, long millis) {
+        int lo = 0;
+        int hi = notes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (on[notes[mid]] <= millis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Index of the first note that may still be sounding at the given time.
+     * No note before it can end at or after {@code millis}, because none is longer than the longest note.
+     */
+    public int firstPossiblySoundingAt(long millis) {
+        return firstOnsetAtOrAfter(millis - maxDuration);
+    }
+
+    /**
+     * Collects notes in any order and sorts them by onset in one go when built.
+     */
+    public static class Builder {
+        private int[] pitch = new int[256];
+        private long[] on = new long[256];
+        private long[] off = new long[256];
+        private int size = 0;
+
+        public Builder add(int midiNote, long onMillis, long offMillis) {
+            if (size == pitch.length) {
+                int capacity = size * 2;
+                pitch = Arrays.copyOf(pitch, capacity);
+                on = Arrays.copyOf(on, capacity);
+                off = Arrays.copyOf(off, capacity);
+            }
+            pitch[size] = midiNote;
+            on[size] = onMillis;
+            off[size] = offMillis;
+            size++;
+            return this;
+        }
+
+        public NoteTimeline build() {
+            int[] order = sortedByOnset();
+            int[] sortedPitch = new int[size];
+            long[] sortedOn = new long[size];
+            long[] sortedOff = new long[size];
+            byte[] sortedFlags = new byte[size];
+            long maxDuration = 0;
+            for (int i = 0; i < size; i++) {
+                int src = order[i];
+                sortedPitch[i] = pitch[src];
+                sortedOn[i] = on[src];
+                sortedOff[i] = off[src];
+                sortedFlags[i] = isBlackPitch(pitch[src]) ? FLAG_BLACK_KEY : 0;
+                maxDuration = Math.max(maxDuration, off[src] - on[src]);
+            }
+            return new NoteTimeline(sortedPitch, sortedOn, sortedOff, sortedFlags, new byte[size], maxDuration);
+        }
+
+        /** Stable merge sort of note indices by onset, so notes starting together keep their input order. */
+        private int[] sortedByOnset() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int lo = 0; lo < size - width; lo += 2 * width) {
+                    int mid = lo + width;
+                    int hi = Math.min(lo + 2 * width, size);
+                    if (on[order[mid - 1]] <= on[order[mid]]) continue;
+                    int a = lo, b = mid, k = lo;
+                    while (a < mid && b < hi) {
+                        buffer[k++] = (on[order[b]] < on[order[a]]) ? order[b++] : order[a++];
+                    }
+                    while (a < mid) buffer[k++] = order[a++];
+                    while (b < hi) buffer[k++] = order[b++];
+                    System.arraycopy(buffer, lo, order, lo, hi - lo);
+                }
+            }
+            return order;
+        }
+    }
+}
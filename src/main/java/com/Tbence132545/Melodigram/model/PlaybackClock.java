@@ -0,0 +1,95 @@
+package com.Tbence132545.Melodigram.model;
+
+/**
+ * The song position everything on screen is drawn from. Between samples of the sequencer the position is
+ * extrapolated from {@link System#nanoTime}, so it advances smoothly at any frame rate. Each new sample is
+ * blended in gradually instead of jumped to, and the reported time never runs backwards except on a seek
+ * or a large resync. Without samples (practice mode) the clock simply runs free at its rate.
+ * <p>
+ * Safe to read from any thread; the render thread and the EDT both do.
+ */
+public class PlaybackClock {
+
+    /** Share of the measured error corrected per sample; small values hide the sequencer's jitter. */
+    private static final double DRIFT_GAIN = 0.1;
+    /** Errors larger than this are not drift but a real jump, and are applied at once. */
+    private static final long RESYNC_THRESHOLD_MICROS = 80_000;
+
+    private double anchorMicros;
+    private long anchorNanos;
+    private double rate = 1.0;
+    private boolean running;
+    private long lastReportedMicros;
+
+    /** The current position in microseconds. */
+    public synchronized long getMicros() {
+        long micros = (long) positionAt(System.nanoTime());
+        if (running && micros < lastReportedMicros) {
+            return lastReportedMicros;
+        }
+        lastReportedMicros = micros;
+        return micros;
+    }
+
+    /** The current position in milliseconds. */
+    public long getMillis() {
+        return getMicros() / 1000;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        anchorNanos = System.nanoTime();
+        running = true;
+    }
+
+    /** Freezes the clock at its current position. */
+    public synchronized void pause() {
+        if (!running) return;
+        long now = System.nanoTime();
+        anchorMicros = positionAt(now);
+        anchorNanos = now;
+        running = false;
+    }
+
+    /** Jumps to the given position; a running clock keeps running from there. */
+    public synchronized void seek(long micros) {
+        anchorMicros = Math.max(0, micros);
+        anchorNanos = System.nanoTime();
+        lastReportedMicros = (long) anchorMicros;
+    }
+
+    /** Sets the playback speed relative to the song's own tempo, e.g. 0.5 for half speed. */
+    public synchronized void setRate(double rate) {
+        if (rate <= 0) throw new IllegalArgumentException("Rate must be positive: " + rate);
+        long now = System.nanoTime();
+        anchorMicros = positionAt(now);
+        anchorNanos = now;
+        this.rate = rate;
+    }
+
+    /**
+     * Feeds in the position reported by the sequencer just now. Small differences are corrected a fraction
+     * at a time; a difference above the resync threshold is taken over directly.
+     */
+    public synchronized void sync(long sequencerMicros) {
+        long now = System.nanoTime();
+        double predicted = positionAt(now);
+        double error = sequencerMicros - predicted;
+        if (Math.abs(error) > RESYNC_THRESHOLD_MICROS) {
+            anchorMicros = sequencerMicros;
+            lastReportedMicros = sequencerMicros;
+        } else {
+            anchorMicros = predicted + error * DRIFT_GAIN;
+        }
+        anchorNanos = now;
+    }
+
+    private double positionAt(long nanos) {
+        if (!running) return anchorMicros;
+        return anchorMicros + (nanos - anchorNanos) / 1000.0 * rate;
+    }
+}
@@ -0,0 +1,239 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+/**
+ * Walks every event of a sequence exactly once, merging all tracks in tick order, and produces
+ * everything the app needs to know about a song: the note timeline, tempo map, pitch range,
+ * content hash and a few statistics.
+ */
+public class SequenceAnalyzer {
+
+    public record Analysis(NoteTimeline timeline,
+                           TempoMap tempoMap,
+                           int lowestNote,
+                           int highestNote,
+                           String contentHash,
+                           int noteCount,
+                           int chordCount,
+                           long durationMicros) {
+
+        /** The same analysis with a timeline of its own, so hand assignments made on it stay private. */
+        public Analysis withClearedHands() {
+            return new Analysis(timeline.withClearedHands(), tempoMap, lowestNote, highestNote,
+                    contentHash, noteCount, chordCount, durationMicros);
+        }
+    }
+
+    private static final int META_SET_TEMPO = 0x51;
+    private static final int DEFAULT_MICROS_PER_QUARTER = 500_000;
+    private static final int DEFAULT_LOWEST_NOTE = 60;
+    private static final int DEFAULT_HIGHEST_NOTE = 72;
+    private static final int CHANNELS = 16;
+
+    private final Sequence sequence;
+    private final boolean ppq;
+    private final int resolution;
+
+    // Tempo state; segment arrays become the TempoMap.
+    private long[] tempoTicks = new long[8];
+    private int[] tempoValues = new int[8];
+    private int tempoCount = 1;
+    private long segmentStartMicros = 0;
+
+    // Note-on times waiting for their note-off, one FIFO per (channel, pitch).
+    private final long[][] pendingOn = new long[CHANNELS * NoteTimeline.KEY_COUNT][];
+    private final int[] pendingHead = new int[CHANNELS * NoteTimeline.KEY_COUNT];
+    private final int[] pendingSize = new int[CHANNELS * NoteTimeline.KEY_COUNT];
+
+    private final NoteTimeline.Builder timeline = NoteTimeline.builder();
+    private int lowestNote = Integer.MAX_VALUE;
+    private int highestNote = Integer.MIN_VALUE;
+    private int chordCount = 0;
+    private long lastOnsetTick = -1;
+    private int onsetsAtTick = 0;
+
+    private SequenceAnalyzer(Sequence sequence) {
+        this.sequence = sequence;
+        this.ppq = sequence.getDivisionType() == Sequence.PPQ;
+        this.resolution = sequence.getResolution();
+        tempoTicks[0] = 0;
+        tempoValues[0] = DEFAULT_MICROS_PER_QUARTER;
+    }
+
+    public static Analysis analyze(Sequence sequence) {
+        return new SequenceAnalyzer(sequence).run();
+    }
+
+    private Analysis run() {
+        Track[] tracks = sequence.getTracks();
+        int[] cursor = new int[tracks.length];
+        // The hash covers the tracks one after another, so each track's share is buffered and digested in
+        // track order at the end; this keeps it identical to hashes already stored with saved assignments.
+        DigestBuffer[] digestInput = new DigestBuffer[tracks.length];
+        for (int t = 0; t < tracks.length; t++) digestInput[t] = new DigestBuffer();
+
+        while (true) {
+            int next = -1;
+            long nextTick = Long.MAX_VALUE;
+            for (int t = 0; t < tracks.length; t++) {
+                if (cursor[t] < tracks[t].size()) {
+                    long tick = tracks[t].get(cursor[t]).getTick();
+                    if (tick < nextTick) {
+                        nextTick = tick;
+                        next = t;
+                    }
+                }
+            }
+            if (next < 0) break;
+
+            MidiEvent event = tracks[next].get(cursor[next]++);
+            MidiMessage msg = event.getMessage();
+            digestInput[next].add(event.getTick(), msg);
+            process(event.getTick(), msg);
+        }
+        finishOnsetGroup();
+
+        TempoMap tempoMap = ppq
+                ? TempoMap.fromSegments(resolution, Arrays.copyOf(tempoTicks, tempoCount), Arrays.copyOf(tempoValues, tempoCount))
+                : TempoMap.fromSequence(sequence);
+        NoteTimeline notes = timeline.build();
+
+        boolean hasNotes = lowestNote != Integer.MAX_VALUE;
+        return new Analysis(
+                notes,
+                tempoMap,
+                hasNotes ? lowestNote : DEFAULT_LOWEST_NOTE,
+                hasNotes ? highestNote : DEFAULT_HIGHEST_NOTE,
+                digest(digestInput),
+                notes.size(),
+                chordCount,
+                tempoMap.tickToMicroseconds(sequence.getTickLength()));
+    }
+
+    private void process(long tick, MidiMessage msg) {
+        if (msg instanceof ShortMessage sm) {
+            int cmd = sm.getCommand();
+            if (cmd == ShortMessage.NOTE_ON && sm.getData2() > 0) {
+                noteOn(sm.getChannel(), sm.getData1(), tick);
+            } else if (cmd == ShortMessage.NOTE_OFF || cmd == ShortMessage.NOTE_ON) {
+                noteOff(sm.getChannel(), sm.getData1(), tick);
+            }
+        } else if (ppq && msg instanceof MetaMessage meta && meta.getType() == META_SET_TEMPO) {
+            int tempo = TempoMap.decodeTempo(meta.getData());
+            if (tempo > 0) tempoChange(tick, tempo);
+        }
+    }
+
+    private void noteOn(int channel, int pitch, long tick) {
+        lowestNote = Math.min(lowestNote, pitch);
+        highestNote = Math.max(highestNote, pitch);
+        if (tick != lastOnsetTick) {
+            finishOnsetGroup();
+            lastOnsetTick = tick;
+        }
+        onsetsAtTick++;
+
+        int key = channel * NoteTimeline.KEY_COUNT + pitch;
+        long[] queue = pendingOn[key];
+        int head = pendingHead[key];
+        int size = pendingSize[key];
+        if (queue == null) {
+            queue = pendingOn[key] = new long[4];
+        } else if (head + size == queue.length) {
+            long[] grown = (size * 2 > queue.length) ? new long[queue.length * 2] : queue;
+            System.arraycopy(queue, head, grown, 0, size);
+            queue = pendingOn[key] = grown;
+            pendingHead[key] = head = 0;
+        }
+        queue[head + size] = tickToMillis(tick);
+        pendingSize[key] = size + 1;
+    }
+
+    private void noteOff(int channel, int pitch, long tick) {
+        int key = channel * NoteTimeline.KEY_COUNT + pitch;
+        int size = pendingSize[key];
+        if (size == 0) return;
+        int head = pendingHead[key];
+        long onMillis = pendingOn[key][head];
+        pendingHead[key] = (size == 1) ? 0 : head + 1;
+        pendingSize[key] = size - 1;
+        timeline.add(pitch, onMillis, tickToMillis(tick));
+    }
+
+    private void finishOnsetGroup() {
+        if (onsetsAtTick > 1) chordCount++;
+        onsetsAtTick = 0;
+    }
+
+    private void tempoChange(long tick, int tempo) {
+        int last = tempoCount - 1;
+        segmentStartMicros += (tick - tempoTicks[last]) * tempoValues[last] / resolution;
+        if (tick == tempoTicks[last]) {
+            tempoValues[last] = tempo;
+            return;
+        }
+        if (tempoCount == tempoTicks.length) {
+            tempoTicks = Arrays.copyOf(tempoTicks, tempoCount * 2);
+            tempoValues = Arrays.copyOf(tempoValues, tempoCount * 2);
+        }
+        tempoTicks[tempoCount] = tick;
+        tempoValues[tempoCount] = tempo;
+        tempoCount++;
+    }
+
+    private long tickToMillis(long tick) {
+        if (!ppq) {
+            return (long) (tick * 1_000_000.0 / (sequence.getDivisionType() * resolution)) / 1000;
+        }
+        int last = tempoCount - 1;
+        return (segmentStartMicros + (tick - tempoTicks[last]) * tempoValues[last] / resolution) / 1000;
+    }
+
+    private static String digest(DigestBuffer[] trackInputs) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (DigestBuffer input : trackInputs) {
+                md.update(input.bytes, 0, input.length);
+            }
+            byte[] digest = md.digest();
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 unavailable", e);
+        }
+    }
+
+    /** Hash input of one track: each event's tick as 8 little-endian bytes followed by its raw message. */
+    private static class DigestBuffer {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+
+        void add(long tick, MidiMessage msg) {
+            int msgLength = msg.getLength();
+            ensureCapacity(8 + msgLength);
+            for (int i = 0; i < 8; i++) {
+                bytes[length++] = (byte) (tick & 0xFF);
+                tick >>= 8;
+            }
+            System.arraycopy(msg.getMessage(), 0, bytes, length, msgLength);
+            length += msgLength;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sound.midi.Sequence;
+
+/**
+ * Least-recently-used cache of parsed and analyzed songs, bounded by the total number of notes held.
+ * Keys include the file's modification time and size, so an edited file is simply a new entry.
+ */
+public class SongCache {
+
+    public record Key(String location, long lastModified, long size) {}
+
+    public record Entry(Sequence sequence, SequenceAnalyzer.Analysis analysis) {
+        private long weight() {
+            return Math.max(1, analysis.noteCount());
+        }
+    }
+
+    private final long maxNotes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedNotes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public SongCache(long maxNotes) {
+        this.maxNotes = maxNotes;
+    }
+
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) hits++;
+        else misses++;
+        return entry;
+    }
+
+    public synchronized void put(Key key, Entry entry) {
+        if (entry.weight() > maxNotes) return;
+        Entry previous = entries.put(key, entry);
+        if (previous != null) cachedNotes -= previous.weight();
+        cachedNotes += entry.weight();
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedNotes > maxNotes && eldest.hasNext()) {
+            Map.Entry<Key, Entry> e = eldest.next();
+            if (e.getKey().equals(key)) continue;
+            cachedNotes -= e.getValue().weight();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedNotes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedNoteCount() {
+        return cachedNotes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
@@ -0,0 +1,214 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Remembers, for every song file that has been analyzed, its content hash, whether hand assignments
+ * are saved for it and a few statistics for the song list. Entries are keyed by location and checked
+ * against size and modification time, so all of it is available without reading the MIDI data.
+ */
+public class SongManifest {
+
+    /** What the manifest keeps from an analysis; small enough to hold for thousands of songs at once. */
+    public record Stats(String contentHash, long durationMicros, int noteCount, int chordCount,
+                        int lowestNote, int highestNote) {
+
+        public static Stats of(SequenceAnalyzer.Analysis analysis) {
+            return new Stats(analysis.contentHash(), analysis.durationMicros(), analysis.noteCount(),
+                    analysis.chordCount(), analysis.lowestNote(), analysis.highestNote());
+        }
+    }
+
+    public static class Entry {
+        long size;
+        long lastModified;
+        String contentHash;
+        boolean hasAssignments;
+        long durationMicros;
+        int noteCount;
+        int chordCount;
+        int lowestNote;
+        int highestNote;
+
+        Entry(long size, long lastModified, Stats stats, boolean hasAssignments) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = stats.contentHash();
+            this.hasAssignments = hasAssignments;
+            this.durationMicros = stats.durationMicros();
+            this.noteCount = stats.noteCount();
+            this.chordCount = stats.chordCount();
+            this.lowestNote = stats.lowestNote();
+            this.highestNote = stats.highestNote();
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public boolean hasAssignments() {
+            return hasAssignments;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+
+        public int getNoteCount() {
+            return noteCount;
+        }
+
+        public int getChordCount() {
+            return chordCount;
+        }
+
+        public int getLowestNote() {
+            return lowestNote;
+        }
+
+        public int getHighestNote() {
+            return highestNote;
+        }
+    }
+
+    /** Locations starting with this are bundled songs rather than files, see {@link MidiFileService#sourceKeyFor}. */
+    static final String RESOURCE_PREFIX = "resource:";
+    private static final Path MANIFEST_FILE = HandAssignmentService.getStandardApplicationDataDirectory().resolve("manifest.json");
+    private static final SongManifest INSTANCE = new SongManifest(MANIFEST_FILE);
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Path file;
+    private Map<String, Entry> entries;
+
+    private SongManifest(Path file) {
+        this.file = file;
+    }
+
+    public static SongManifest getInstance() {
+        return INSTANCE;
+    }
+
+    /** Returns the entry for this file if it was recorded for the same size and modification time. */
+    public synchronized Optional<Entry> find(SongCache.Key key) {
+        Entry entry = entries().get(key.location());
+        if (entry == null || entry.size != key.size() || entry.lastModified != key.lastModified()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    public Optional<String> findContentHash(SongCache.Key key) {
+        return find(key).map(Entry::getContentHash);
+    }
+
+    /**
+     * Content hashes of the recorded files that still exist, e.g. to recognise a song that is already in the library.
+     * Bundled songs always exist; an entry left behind by a deleted file does not count.
+     */
+    public synchronized Set<String> contentHashesOfExistingFiles() {
+        Set<String> hashes = new HashSet<>();
+        for (Map.Entry<String, Entry> e : entries().entrySet()) {
+            String location = e.getKey();
+            if (location.startsWith(RESOURCE_PREFIX) || Files.exists(Path.of(location))) {
+                hashes.add(e.getValue().contentHash);
+            }
+        }
+        return hashes;
+    }
+
+    public synchronized void record(SongCache.Key key, SequenceAnalyzer.Analysis analysis) {
+        if (put(key, Stats.of(analysis))) save();
+    }
+
+    /** Records several analyzed files with a single write of the manifest. */
+    public synchronized void recordAll(Map<SongCache.Key, Stats> stats) {
+        boolean changed = false;
+        for (Map.Entry<SongCache.Key, Stats> e : stats.entrySet()) {
+            changed |= put(e.getKey(), e.getValue());
+        }
+        if (changed) save();
+    }
+
+    private boolean put(SongCache.Key key, Stats stats) {
+        Entry existing = entries().get(key.location());
+        if (existing != null && existing.size == key.size() && existing.lastModified == key.lastModified()
+                && stats.contentHash().equals(existing.contentHash)) {
+            return false;
+        }
+        boolean hasAssignments = HandAssignmentService.hasAssignmentFile(stats.contentHash());
+        entries().put(key.location(), new Entry(key.size(), key.lastModified(), stats, hasAssignments));
+        return true;
+    }
+
+    /** Updates the flag on every file with this content, e.g. after its assignments were saved. */
+    public synchronized void setHasAssignments(String contentHash, boolean hasAssignments) {
+        boolean changed = false;
+        for (Entry entry : entries().values()) {
+            if (contentHash.equals(entry.contentHash) && entry.hasAssignments != hasAssignments) {
+                entry.hasAssignments = hasAssignments;
+                changed = true;
+            }
+        }
+        if (changed) save();
+    }
+
+    public synchronized void forget(String location) {
+        if (entries().remove(location) != null) save();
+    }
+
+    /** Removes the entries of several files, e.g. after they were deleted, with a single write of the manifest. */
+    public synchronized void forgetAll(Collection<String> locations) {
+        boolean changed = false;
+        for (String location : locations) {
+            changed |= entries().remove(location) != null;
+        }
+        if (changed) save();
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            entries = load();
+        }
+        return entries;
+    }
+
+    private Map<String, Entry> load() {
+        if (!Files.exists(file)) {
+            return new HashMap<>();
+        }
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            Map<String, Entry> loaded = gson.fromJson(content, new TypeToken<HashMap<String, Entry>>() {}.getType());
+            return (loaded != null) ? loaded : new HashMap<>();
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Could not read song manifest, starting a new one: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, gson.toJson(entries), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * In-memory search index over the song library. File names are indexed by every substring of up to three
+ * characters, and the filters keep one bit set per bucket, so a query is a handful of bit set intersections
+ * plus a substring check on the remaining candidates. Not thread-safe; meant to be used from the EDT.
+ */
+public class SongSearchIndex {
+
+    public enum DurationFilter {
+        ANY("Any length", 0, Long.MAX_VALUE),
+        SHORT("Under 2 min", 0, 120_000_000L),
+        MEDIUM("2-5 min", 120_000_000L, 300_000_000L),
+        LONG("Over 5 min", 300_000_000L, Long.MAX_VALUE);
+
+        private final String label;
+        private final long minMicros;
+        private final long maxMicros;
+
+        DurationFilter(String label, long minMicros, long maxMicros) {
+            this.label = label;
+            this.minMicros = minMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        boolean accepts(LibraryCatalog.SongInfo song) {
+            return this == ANY || (song.analyzed() && song.durationMicros() >= minMicros && song.durationMicros() < maxMicros);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public enum RangeFilter {
+        ANY("Any range", 0, Integer.MAX_VALUE),
+        NARROW("Up to 2 octaves", 0, 25),
+        MEDIUM("2-4 octaves", 25, 49),
+        WIDE("Over 4 octaves", 49, Integer.MAX_VALUE);
+
+        private final String label;
+        private final int minSpan;
+        private final int maxSpan;
+
+        RangeFilter(String label, int minSpan, int maxSpan) {
+            this.label = label;
+            this.minSpan = minSpan;
+            this.maxSpan = maxSpan;
+        }
+
+        boolean accepts(LibraryCatalog.SongInfo song) {
+            if (this == ANY) return true;
+            int span = song.highestNote() - song.lowestNote();
+            return song.analyzed() && span >= minSpan && span < maxSpan;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public record Query(String text, boolean onlyWithAssignments, DurationFilter duration, RangeFilter range) {
+
+        public static final Query ALL = new Query("", false, DurationFilter.ANY, RangeFilter.ANY);
+
+        public Query {
+            text = normalize(text);
+        }
+
+        public boolean isAll() {
+            return text.isEmpty() && !onlyWithAssignments && duration == DurationFilter.ANY && range == RangeFilter.ANY;
+        }
+
+        /** Checks one song directly, giving the same answer as a search would. */
+        public boolean matches(LibraryCatalog.SongInfo song) {
+            return normalize(song.fileName()).contains(text)
+                    && (!onlyWithAssignments || song.hasAssignments())
+                    && duration.accepts(song)
+                    && range.accepts(song);
+        }
+    }
+
+    private static final int MAX_GRAM = 3;
+
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private LibraryCatalog.SongInfo[] songs = new LibraryCatalog.SongInfo[64];
+    private String[] normalizedNames = new String[64];
+    private int idLimit = 0;
+
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final BitSet present = new BitSet();
+    private final BitSet withAssignments = new BitSet();
+    private final Map<DurationFilter, BitSet> byDuration = new EnumMap<>(DurationFilter.class);
+    private final Map<RangeFilter, BitSet> byRange = new EnumMap<>(RangeFilter.class);
+
+    // Ids in file name order, rebuilt lazily after names were added or removed.
+    private int[] nameOrder = new int[0];
+    private boolean nameOrderDirty = false;
+
+    public SongSearchIndex() {
+        for (DurationFilter filter : DurationFilter.values()) byDuration.put(filter, new BitSet());
+        for (RangeFilter filter : RangeFilter.values()) byRange.put(filter, new BitSet());
+    }
+
+    public int size() {
+        return idsByName.size();
+    }
+
+    /** The song indexed under this file name, or null. */
+    public LibraryCatalog.SongInfo find(String fileName) {
+        Integer id = idsByName.get(fileName);
+        return (id != null) ? songs[id] : null;
+    }
+
+    public void clear() {
+        idsByName.clear();
+        freeIds.clear();
+        Arrays.fill(songs, null);
+        Arrays.fill(normalizedNames, null);
+        idLimit = 0;
+        postings.clear();
+        present.clear();
+        withAssignments.clear();
+        byDuration.values().forEach(BitSet::clear);
+        byRange.values().forEach(BitSet::clear);
+        nameOrder = new int[0];
+        nameOrderDirty = false;
+    }
+
+    /** Adds a song, or replaces the metadata of one already indexed under the same file name. */
+    public void addOrUpdate(LibraryCatalog.SongInfo song) {
+        Integer existing = idsByName.get(song.fileName());
+        int id;
+        if (existing != null) {
+            id = existing;
+        } else {
+            id = allocateId();
+            idsByName.put(song.fileName(), id);
+            String name = normalize(song.fileName());
+            normalizedNames[id] = name;
+            forEachGram(name, gram -> postings.computeIfAbsent(gram, g -> new BitSet()).set(id));
+            present.set(id);
+            nameOrderDirty = true;
+        }
+        songs[id] = song;
+        withAssignments.set(id, song.hasAssignments());
+        for (DurationFilter filter : DurationFilter.values()) byDuration.get(filter).set(id, filter.accepts(song));
+        for (RangeFilter filter : RangeFilter.values()) byRange.get(filter).set(id, filter.accepts(song));
+    }
+
+    public void remove(String fileName) {
+        Integer id = idsByName.remove(fileName);
+        if (id == null) return;
+        forEachGram(normalizedNames[id], gram -> {
+            BitSet ids = postings.get(gram);
+            ids.clear(id);
+            if (ids.isEmpty()) postings.remove(gram);
+        });
+        present.clear(id);
+        withAssignments.clear(id);
+        byDuration.values().forEach(bits -> bits.clear(id));
+        byRange.values().forEach(bits -> bits.clear(id));
+        songs[id] = null;
+        normalizedNames[id] = null;
+        freeIds.push(id);
+        nameOrderDirty = true;
+    }
+
+    /** The matching songs, ordered by file name. */
+    public List<LibraryCatalog.SongInfo> search(Query query) {
+        BitSet matches = candidates(query);
+        boolean verifyText = query.text().length() > MAX_GRAM;
+        int[] order = nameOrder();
+        List<LibraryCatalog.SongInfo> result = new ArrayList<>();
+        for (int id : order) {
+            if (!matches.get(id)) continue;
+            // Longer queries are narrowed by their substrings, which may occur in a different order in the name
+            if (verifyText && !normalizedNames[id].contains(query.text())) continue;
+            result.add(songs[id]);
+        }
+        return result;
+    }
+
+    private BitSet candidates(Query query) {
+        BitSet matches = (BitSet) present.clone();
+        String text = query.text();
+        if (!text.isEmpty()) {
+            if (text.length() <= MAX_GRAM) {
+                matches.and(postingsFor(text));
+            } else {
+                for (int i = 0; i + MAX_GRAM <= text.length() && !matches.isEmpty(); i++) {
+                    matches.and(postingsFor(text.substring(i, i + MAX_GRAM)));
+                }
+            }
+        }
+        if (query.onlyWithAssignments()) matches.and(withAssignments);
+        if (query.duration() != DurationFilter.ANY) matches.and(byDuration.get(query.duration()));
+        if (query.range() != RangeFilter.ANY) matches.and(byRange.get(query.range()));
+        return matches;
+    }
+
+    private BitSet postingsFor(String gram) {
+        BitSet ids = postings.get(gram);
+        return (ids != null) ? ids : new BitSet();
+    }
+
+    private int[] nameOrder() {
+        if (nameOrderDirty) {
+            nameOrder = idsByName.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .mapToInt(Map.Entry::getValue)
+                    .toArray();
+            nameOrderDirty = false;
+        }
+        return nameOrder;
+    }
+
+    private int allocateId() {
+        if (!freeIds.isEmpty()) return freeIds.pop();
+        if (idLimit == songs.length) {
+            songs = Arrays.copyOf(songs, idLimit * 2);
+            normalizedNames = Arrays.copyOf(normalizedNames, idLimit * 2);
+        }
+        return idLimit++;
+    }
+
+    private static void forEachGram(String name, Consumer<String> action) {
+        Set<String> seen = new HashSet<>();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int i = 0; i + length <= name.length(); i++) {
+                String gram = name.substring(i, i + length);
+                if (seen.add(gram)) action.accept(gram);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return (text == null) ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
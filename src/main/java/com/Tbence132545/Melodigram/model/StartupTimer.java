@@ -0,0 +1,32 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs how long after process start each startup phase finished, so time-to-interactive and
+ * time-to-first-note can be compared between versions. Times include JVM startup.
+ */
+public final class StartupTimer {
+
+    private static final long PROCESS_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Set<String> LOGGED_ONCE = ConcurrentHashMap.newKeySet();
+
+    private StartupTimer() {
+    }
+
+    public static void mark(String phase) {
+        System.out.printf("[startup] %6d ms  %s%n", System.currentTimeMillis() - PROCESS_START_MILLIS, phase);
+    }
+
+    /** Like {@link #mark}, but only the first time this phase is reached. */
+    public static void markOnce(String phase) {
+        if (LOGGED_ONCE.add(phase)) mark(phase);
+    }
+
+    /** Logs a phase with its own duration, measured from {@code startNanos}, after the time since process start. */
+    public static void markTook(String phase, long startNanos) {
+        mark(phase + " (took " + (System.nanoTime() - startNanos) / 1_000_000 + " ms)");
+    }
+}
@@ -0,0 +1,170 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+/**
+ * Converts between MIDI ticks and microseconds for a sequence without going through a Sequencer.
+ * The map is built once from the set-tempo meta events; every lookup is a binary search over the
+ * tempo segments.
+ */
+public class TempoMap {
+
+    private static final int META_SET_TEMPO = 0x51;
+    private static final int DEFAULT_MICROS_PER_QUARTER = 500_000;
+
+    private final float divisionType;
+    private final int resolution;
+    private final long[] segmentTicks;
+    private final long[] segmentMicros;
+    private final int[] segmentTempos;
+
+    private TempoMap(float divisionType, int resolution, long[] segmentTicks, long[] segmentMicros, int[] segmentTempos) {
+        this.divisionType = divisionType;
+        this.resolution = resolution;
+        this.segmentTicks = segmentTicks;
+        this.segmentMicros = segmentMicros;
+        this.segmentTempos = segmentTempos;
+    }
+
+    public static TempoMap fromSequence(Sequence sequence) {
+        float divisionType = sequence.getDivisionType();
+        int resolution = sequence.getResolution();
+        if (divisionType != Sequence.PPQ) {
+            return smpte(divisionType, resolution);
+        }
+
+        List<long[]> changes = new ArrayList<>();
+        for (Track track : sequence.getTracks()) {
+            for (int i = 0; i < track.size(); i++) {
+                MidiEvent event = track.get(i);
+                MidiMessage msg = event.getMessage();
+                if (msg instanceof MetaMessage meta && meta.getType() == META_SET_TEMPO) {
+                    int tempo = decodeTempo(meta.getData());
+                    if (tempo > 0) changes.add(new long[]{event.getTick(), tempo});
+                }
+            }
+        }
+        // Stable sort keeps the last tempo event at a given tick as the effective one.
+        changes.sort(Comparator.comparingLong(c -> c[0]));
+
+        long[] ticks = new long[changes.size() + 1];
+        int[] tempos = new int[changes.size() + 1];
+        int count = 1;
+        ticks[0] = 0;
+        tempos[0] = DEFAULT_MICROS_PER_QUARTER;
+        for (long[] change : changes) {
+            if (change[0] == ticks[count - 1]) {
+                tempos[count - 1] = (int) change[1];
+            } else {
+                ticks[count] = change[0];
+                tempos[count] = (int) change[1];
+                count++;
+            }
+        }
+        return fromSegments(resolution, Arrays.copyOf(ticks, count), Arrays.copyOf(tempos, count));
+    }
+
+    /**
+     * Builds a PPQ map from segment start ticks and their tempos (microseconds per quarter note).
+     * The first segment must start at tick 0.
+     */
+    static TempoMap fromSegments(int resolution, long[] ticks, int[] tempos) {
+        long[] micros = new long[ticks.length];
+        for (int i = 1; i < ticks.length; i++) {
+            micros[i] = micros[i - 1] + (ticks[i] - ticks[i - 1]) * tempos[i - 1] / resolution;
+        }
+        return new TempoMap(Sequence.PPQ, resolution, ticks, micros, tempos);
+    }
+
+    /** SMPTE timing: ticks map linearly to time and tempo events are ignored. */
+    private static TempoMap smpte(float divisionType, int resolution) {
+        return new TempoMap(divisionType, resolution, new long[]{0}, new long[]{0}, new int[]{DEFAULT_MICROS_PER_QUARTER});
+    }
+
+    int serializedSize() {
+        return 4 + 4 + 4 + segmentTicks.length * (8 + 4);
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putFloat(divisionType);
+        out.putInt(resolution);
+        out.putInt(segmentTicks.length);
+        out.asLongBuffer().put(segmentTicks);
+        out.position(out.position() + segmentTicks.length * 8);
+        out.asIntBuffer().put(segmentTempos);
+        out.position(out.position() + segmentTempos.length * 4);
+    }
+
+    static TempoMap readFrom(ByteBuffer in) {
+        float divisionType = in.getFloat();
+        int resolution = in.getInt();
+        int count = in.getInt();
+        if (count < 0 || (long) count * (8 + 4) > in.remaining()) {
+            throw new IllegalArgumentException("Bad tempo segment count " + count);
+        }
+        long[] ticks = new long[count];
+        int[] tempos = new int[count];
+        in.asLongBuffer().get(ticks);
+        in.position(in.position() + count * 8);
+        in.asIntBuffer().get(tempos);
+        in.position(in.position() + count * 4);
+        if (divisionType != Sequence.PPQ) return smpte(divisionType, resolution);
+        return fromSegments(resolution, ticks, tempos);
+    }
+
+    static int decodeTempo(byte[] data) {
+        if (data == null || data.length < 3) return -1;
+        return ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+    }
+
+    public long tickToMicroseconds(long tick) {
+        if (tick <= 0) return 0;
+        if (divisionType != Sequence.PPQ) {
+            return (long) (tick * 1_000_000.0 / (divisionType * resolution));
+        }
+        int i = findSegment(segmentTicks, tick);
+        return segmentMicros[i] + (tick - segmentTicks[i]) * segmentTempos[i] / resolution;
+    }
+
+    public long tickToMillis(long tick) {
+        return tickToMicroseconds(tick) / 1000;
+    }
+
+    public long microsecondsToTick(long micros) {
+        if (micros <= 0) return 0;
+        if (divisionType != Sequence.PPQ) {
+            return (long) (micros * (divisionType * resolution) / 1_000_000.0);
+        }
+        int i = findSegment(segmentMicros, micros);
+        return segmentTicks[i] + (micros - segmentMicros[i]) * resolution / segmentTempos[i];
+    }
+
+    public float getDivisionType() {
+        return divisionType;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    private static int findSegment(long[] starts, long value) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= value) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,89 @@
+package com.Tbence132545.Melodigram.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Binary on-disk cache of analyzed songs, one file per content hash in the app data directory.
+ * Files hold the note arrays, tempo map and statistics and are memory-mapped when read back.
+ * Anything unreadable, corrupt, from another format version or for another hash is treated as a miss, so the
+ * song is analyzed again and the file rewritten.
+ */
+public class TimelineCache {
+
+    private static final int MAGIC = 0x4D44544C; // "MDTL"
+    private static final int FORMAT_VERSION = 1;
+    private static final Path TIMELINES_DIR = HandAssignmentService.getStandardApplicationDataDirectory().resolve("timelines");
+
+    public Optional<SequenceAnalyzer.Analysis> load(String contentHash) {
+        Path file = fileFor(contentHash);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            byte[] hashBytes = new byte[in.getShort()];
+            in.get(hashBytes);
+            if (!contentHash.equals(new String(hashBytes, StandardCharsets.US_ASCII))) {
+                return Optional.empty();
+            }
+            int lowestNote = in.getInt();
+            int highestNote = in.getInt();
+            int chordCount = in.getInt();
+            long durationMicros = in.getLong();
+            TempoMap tempoMap = TempoMap.readFrom(in);
+            NoteTimeline timeline = NoteTimeline.readFrom(in);
+            return Optional.of(new SequenceAnalyzer.Analysis(timeline, tempoMap, lowestNote, highestNote,
+                    contentHash, timeline.size(), chordCount, durationMicros));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable timeline cache " + file.getFileName() + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void store(SequenceAnalyzer.Analysis analysis) {
+        byte[] hashBytes = analysis.contentHash().getBytes(StandardCharsets.US_ASCII);
+        int size = 4 + 4 + 2 + hashBytes.length + 4 + 4 + 4 + 8
+                + analysis.tempoMap().serializedSize()
+                + analysis.timeline().serializedSize();
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+        out.putShort((short) hashBytes.length);
+        out.put(hashBytes);
+        out.putInt(analysis.lowestNote());
+        out.putInt(analysis.highestNote());
+        out.putInt(analysis.chordCount());
+        out.putLong(analysis.durationMicros());
+        analysis.tempoMap().writeTo(out);
+        analysis.timeline().writeTo(out);
+        out.flip();
+
+        Path file = fileFor(analysis.contentHash());
+        try {
+            Files.createDirectories(TIMELINES_DIR);
+            Path tmp = Files.createTempFile(TIMELINES_DIR, analysis.contentHash(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) channel.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write timeline cache " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String contentHash) {
+        return TIMELINES_DIR.resolve(contentHash + ".timeline");
+    }
+}
@@ -0,0 +1,166 @@
+package com.Tbence132545.Melodigram.view;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A heavyweight canvas drawn by its own render thread instead of the EDT. Frames go through a
+ * {@link BufferStrategy} (page flipping when the pipeline supports it, accelerated blits otherwise)
+ * and are paced with {@link System#nanoTime} at the display's refresh rate, so key highlights, seek bar
+ * updates and layout on the EDT cannot delay or coalesce frames.
+ * <p>
+ * The thread starts when the canvas becomes displayable and stops when it is removed or its window disposed.
+ */
+class ActiveRenderCanvas extends Canvas {
+
+    /** Draws one frame, covering the whole canvas; called on the render thread. */
+    interface FrameRenderer {
+        void render(Graphics2D g, int width, int height);
+    }
+
+    private static final int FALLBACK_REFRESH_RATE = 60;
+    /** Overrides the refresh rate reported by the display, e.g. {@code -Dmelodigram.renderHz=144}. */
+    private static final int REFRESH_RATE_OVERRIDE = Integer.getInteger("melodigram.renderHz", 0);
+    /** How early the thread wakes before a frame is due, then spins the rest; sleeps overshoot by about this much. */
+    private static final long SPIN_THRESHOLD_NANOS = 1_000_000;
+
+    private final FrameRenderer renderer;
+    private volatile Thread renderThread;
+
+    ActiveRenderCanvas(FrameRenderer renderer) {
+        this.renderer = renderer;
+        setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        Thread thread = new Thread(this::renderLoop, "animation-render");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY + 1);
+        renderThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        Thread thread = renderThread;
+        renderThread = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                // The buffer strategy is destroyed below, so the last frame must be finished first
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.removeNotify();
+    }
+
+    private void renderLoop() {
+        long frameNanos = 1_000_000_000L / refreshRate();
+        long nextFrame = System.nanoTime();
+        BufferStrategy strategy = null;
+        int strategyWidth = 0;
+        int strategyHeight = 0;
+
+        while (renderThread == Thread.currentThread()) {
+            // Flip buffers keep the size they were created with, so a resize needs a new strategy
+            if (strategy == null || strategyWidth != getWidth() || strategyHeight != getHeight()) {
+                strategyWidth = getWidth();
+                strategyHeight = getHeight();
+                strategy = createStrategy();
+            }
+            if (strategy != null && !drawFrame(strategy)) {
+                break;
+            }
+
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameNanos) {
+                // More than a frame behind (window hidden, GC pause): drop the missed frames instead of catching up
+                nextFrame = now;
+            }
+            if (!waitUntil(nextFrame)) break;
+        }
+    }
+
+    private BufferStrategy createStrategy() {
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) return null;
+        try {
+            BufferCapabilities flipping = new BufferCapabilities(
+                    new ImageCapabilities(true), new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+            createBufferStrategy(2, flipping);
+        } catch (AWTException e) {
+            // No page flipping on this pipeline; the default picks accelerated blitting where it can
+            createBufferStrategy(2);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        return getBufferStrategy();
+    }
+
+    /** Draws and shows one frame; returns false if rendering failed and the loop should stop. */
+    private boolean drawFrame(BufferStrategy strategy) {
+        try {
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    try {
+                        renderer.render((Graphics2D) g, getWidth(), getHeight());
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+                Toolkit.getDefaultToolkit().sync();
+            } while (strategy.contentsLost());
+        } catch (IllegalStateException e) {
+            // The peer went away between frames; removeNotify is about to stop the loop
+        } catch (RuntimeException e) {
+            // The same error would recur on every frame, so report it once and stop rendering
+            System.err.println("Stopping the animation render thread after an error:");
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    /** Parks until shortly before the deadline and spins the remainder; returns false if interrupted. */
+    private static boolean waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (Thread.interrupted()) return false;
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private int refreshRate() {
+        if (REFRESH_RATE_OVERRIDE > 0) return REFRESH_RATE_OVERRIDE;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            DisplayMode mode = config.getDevice().getDisplayMode();
+            if (mode != null && mode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return mode.getRefreshRate();
+            }
+        }
+        return FALLBACK_REFRESH_RATE;
+    }
+}
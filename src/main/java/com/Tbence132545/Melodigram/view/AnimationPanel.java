@@ -1,26 +1,38 @@
 package com.Tbence132545.Melodigram.view;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.Function;
 import java.util.function.LongConsumer;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
+import com.Tbence132545.Melodigram.model.NoteTimeline;
+import com.Tbence132545.Melodigram.model.PlaybackClock;
+
 public class AnimationPanel extends JPanel {
+    /**
+     * Opt-in active rendering, {@code -Dmelodigram.activeRendering=true}: the falling notes are drawn on a canvas
+     * by a dedicated render thread at the display refresh rate, and Swing only paints the controls.
+     */
+    public static final boolean ACTIVE_RENDERING = Boolean.getBoolean("melodigram.activeRendering");
+
     public static class HandAssignment {
         public final int midiNote;
         public final long on;
@@ -40,42 +52,67 @@ public class AnimationPanel extends JPanel {
     private static final long NOTE_FALL_DURATION_MS = 2000;
     private static final int NOTE_CORNER_RADIUS = 10;
     private static final Color COLOR_GRID_LINE = new Color(100, 100, 100, 150);
+    private static final Color COLOR_BLACK_KEY_LANE = new Color(22, 22, 22);
     private static final Color COLOR_BLACK_NOTE = new Color(255, 100, 100, 180);
     private static final Color COLOR_WHITE_NOTE = new Color(255, 215, 0, 180);
     private static final Color COLOR_LEFT_WHITE = new Color(135, 206, 250, 220); // Light Sky Blue
     private static final Color COLOR_LEFT_BLACK = new Color(25, 25, 112, 220);   // Midnight Blue
     private static final Color COLOR_RIGHT_WHITE = new Color(250, 128, 114, 220); // Salmon
     private static final Color COLOR_RIGHT_BLACK = new Color(178, 34, 34, 220);  // Firebrick
+    private static final Color HIGHLIGHT_LEFT_WHITE = opaque(COLOR_LEFT_WHITE);
+    private static final Color HIGHLIGHT_LEFT_BLACK = opaque(COLOR_LEFT_BLACK);
+    private static final Color HIGHLIGHT_RIGHT_WHITE = opaque(COLOR_RIGHT_WHITE);
+    private static final Color HIGHLIGHT_RIGHT_BLACK = opaque(COLOR_RIGHT_BLACK);
 
     private static final Font NOTE_TEXT_FONT = new Font("SansSerif", Font.BOLD, 16);
     private static final Color NOTE_TEXT_COLOR = Color.WHITE;
 
-    private final List<FallingNote> notes = new CopyOnWriteArrayList<>();
-    private final Function<Integer, PianoWindow.KeyInfo> keyInfoProvider;
-    private long currentTimeMillis = 0;
+    private volatile NoteTimeline timeline = NoteTimeline.EMPTY;
+    // Hit testing runs on the EDT and rendering may run on the render thread, so each has its own scratch rectangle
+    private final Rectangle noteBounds = new Rectangle();
+    private final Rectangle paintBounds = new Rectangle();
+    private final NoteSpriteCache spriteCache = new NoteSpriteCache(NOTE_CORNER_RADIUS, NOTE_TEXT_FONT, NOTE_TEXT_COLOR);
+    // The static part of the scene, redrawn only for a new size, key layout or shading setting
+    private BufferedImage background;
+    private KeyLayout backgroundKeys;
+    private GraphicsConfiguration backgroundConfig;
+    private boolean backgroundShaded;
+    private volatile boolean laneShadingEnabled = Boolean.getBoolean("melodigram.laneShading");
+    private final Supplier<KeyLayout> keyLayout;
+    private volatile PlaybackClock clock = new PlaybackClock();
     private long totalDurationMillis = 0;
-    private final int lowestNote;
-    private final int highestNote;
-    private boolean isHandAssignmentEnabled = false;
-    private ListWindow.MidiFileActionListener.HandMode practiceFilterMode = ListWindow.MidiFileActionListener.HandMode.BOTH;
+    private volatile boolean isHandAssignmentEnabled = false;
+    private volatile ListWindow.MidiFileActionListener.HandMode practiceFilterMode = ListWindow.MidiFileActionListener.HandMode.BOTH;
 
     private Runnable onDragStart;
     private LongConsumer onTimeChange;
     private Runnable onDragEnd;
 
-    public AnimationPanel(Function<Integer, PianoWindow.KeyInfo> keyInfoProvider, int lowestNote, int highestNote) {
-        this.keyInfoProvider = keyInfoProvider;
-        this.lowestNote = lowestNote;
-        this.highestNote = highestNote;
+    /** {@code keyLayout} supplies the keyboard's current key positions, which the notes line up with. */
+    public AnimationPanel(Supplier<KeyLayout> keyLayout) {
+        this.keyLayout = keyLayout;
 
         setBackground(Color.BLACK);
 
+        // In active mode the canvas covers the panel and receives the mouse events instead
+        Component eventSurface = this;
+        if (ACTIVE_RENDERING) {
+            setLayout(new BorderLayout());
+            eventSurface = new ActiveRenderCanvas(this::renderScene);
+            add(eventSurface, BorderLayout.CENTER);
+        }
+
         TimelineDragHandler dragHandler = new TimelineDragHandler();
-        addMouseListener(dragHandler);
-        addMouseMotionListener(dragHandler);
+        eventSurface.addMouseListener(dragHandler);
+        eventSurface.addMouseMotionListener(dragHandler);
 
         NoteClickHandler clickHandler = new NoteClickHandler();
-        addMouseListener(clickHandler);
+        eventSurface.addMouseListener(clickHandler);
+    }
+
+    /** Requests a repaint unless the render thread is already redrawing every frame. */
+    private void requestFrame() {
+        if (!ACTIVE_RENDERING) repaint();
     }
 
     public void setPracticeFilterMode(ListWindow.MidiFileActionListener.HandMode mode) {
@@ -83,35 +120,31 @@ public class AnimationPanel extends JPanel {
         repaint();
     }
 
+    /** Shades the lanes under the black keys, e.g. to make it easier to follow which notes are sharps. */
+    public void setLaneShadingEnabled(boolean enabled) {
+        this.laneShadingEnabled = enabled;
+        repaint();
+    }
+
+    public void setNoteTimeline(NoteTimeline timeline) {
+        this.timeline = timeline;
+        repaint();
+    }
+
     public List<HandAssignment> getAssignedNotes() {
-        return notes.stream()
-                .filter(note -> note.hand != null)
-                .map(note -> new HandAssignment(
-                        note.midiNote,
-                        note.noteOnTime,
-                        note.noteOffTime,
-                        note.hand.name()
-                ))
-                .collect(Collectors.toList());
-    }
-
-    public void applyHandAssignments(List<HandAssignment> assignments) {
-        if (assignments == null || assignments.isEmpty()) return;
-        final long TOL_MS = 5;
-
-        for (HandAssignment a : assignments) {
-            for (FallingNote n : notes) {
-                if (n.midiNote == a.midiNote
-                        && Math.abs(n.noteOnTime - a.on) <= TOL_MS
-                        && Math.abs(n.noteOffTime - a.off) <= TOL_MS) {
-                    try {
-                        n.setHand(FallingNote.Hands.valueOf(a.hand));
-                    } catch (IllegalArgumentException ignored) {
-                    }
-                }
+        NoteTimeline notes = timeline;
+        List<HandAssignment> assigned = new ArrayList<>();
+        for (int i = 0; i < notes.size(); i++) {
+            byte hand = notes.getHand(i);
+            if (hand != NoteTimeline.HAND_NONE) {
+                assigned.add(new HandAssignment(notes.getPitch(i), notes.getOn(i), notes.getOff(i), handName(hand)));
             }
         }
-        repaint();
+        return assigned;
+    }
+
+    private static String handName(byte hand) {
+        return hand == NoteTimeline.HAND_LEFT ? "LEFT" : "RIGHT";
     }
 
     public void setHandAssignmentMode(boolean enabled) {
@@ -126,79 +159,144 @@ public class AnimationPanel extends JPanel {
     public void setOnTimeChange(LongConsumer onTimeChange) { this.onTimeChange = onTimeChange; }
     public void setOnDragEnd(Runnable onDragEnd) { this.onDragEnd = onDragEnd; }
 
-    public long getCurrentTimeMillis() {
-        return currentTimeMillis;
-    }
-
-    public void tick(long deltaMillis) {
-        currentTimeMillis -= deltaMillis;
+    /** The clock the notes are positioned by; dragging the timeline seeks it. */
+    public void setPlaybackClock(PlaybackClock clock) {
+        this.clock = clock;
         repaint();
     }
 
-    public void updatePlaybackTime(long timeMillis) {
-        this.currentTimeMillis = timeMillis;
+    public long getCurrentTimeMillis() {
+        return clock.getMillis();
     }
 
-    public void addFallingNote(int midiNote, long noteOnTime, long noteOffTime, boolean isBlackKey) {
-        notes.add(new FallingNote(midiNote, noteOnTime, noteOffTime, isBlackKey));
+    /** Called once per timer tick to show the clock's new position. */
+    public void tick() {
+        requestFrame();
     }
 
-    public List<Integer> getNotesStartingBetween(long startMs, long endMs, ListWindow.MidiFileActionListener.HandMode handMode) {
-        List<Integer> onsets = new ArrayList<>();
-        if (endMs < startMs) return onsets;
+    /**
+     * Fills {@code out} with the notes starting in {@code (startMs, endMs]} for the given hand
+     * and returns how many were written.
+     */
+    public int getNotesStartingBetween(long startMs, long endMs, ListWindow.MidiFileActionListener.HandMode handMode, int[] out) {
+        return timeline.pitchesStartingBetween(startMs, endMs, handFilterFor(handMode), out);
+    }
 
-        for (FallingNote note : notes) {
-            boolean isWithinTime = note.noteOnTime > startMs && note.noteOnTime <= endMs;
-            if (isWithinTime && note.matchesHandFilter(handMode)) {
-                onsets.add(note.midiNote);
-            }
+    private static byte handFilterFor(ListWindow.MidiFileActionListener.HandMode handMode) {
+        switch (handMode) {
+            case LEFT:  return NoteTimeline.HAND_LEFT;
+            case RIGHT: return NoteTimeline.HAND_RIGHT;
+            case BOTH:
+            default:    return NoteTimeline.ANY_HAND;
         }
-        return onsets;
     }
 
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (ACTIVE_RENDERING) {
+            super.paintComponent(g);
+            return;
+        }
+        // The cached background covers the whole panel, so there is nothing for super to clear
+        renderScene((Graphics2D) g, getWidth(), getHeight());
+    }
 
-        drawGridLines(g2d);
+    /**
+     * Draws the background and the notes at the current time, covering the whole area;
+     * used by both paintComponent and the render thread.
+     */
+    private void renderScene(Graphics2D g2d, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+
+        // One layout for the whole frame, even if a resize publishes a new one meanwhile
+        KeyLayout keys = keyLayout.get();
+        // The background has a pixel per device pixel; drawn at user-space size, the transform maps it back one to one
+        g2d.drawImage(backgroundFor(g2d.getDeviceConfiguration(), g2d.getTransform(), keys, width, height),
+                0, 0, width, height, null);
+        // Sprites are as wide as the keys, so a new layout invalidates them
+        spriteCache.validate(g2d.getDeviceConfiguration(), keys.getTotalWidth(), g2d.getTransform());
+
+        NoteTimeline notes = timeline;
+        long now = clock.getMillis();
+        int end = lastVisibleCandidate(notes, now);
+        for (int i = notes.firstPossiblySoundingAt(now); i < end; i++) {
+            drawNote(g2d, keys, notes, i, now, height);
+        }
+    }
 
-        for (FallingNote note : notes) {
-            note.draw(g2d, currentTimeMillis, getHeight());
+    /**
+     * Exclusive end of the notes that can be on screen at the given time:
+     * everything with an onset inside the upcoming fall window.
+     */
+    private int lastVisibleCandidate(NoteTimeline notes, long currentMillis) {
+        return notes.firstOnsetAfter(currentMillis + NOTE_FALL_DURATION_MS);
+    }
+
+    private BufferedImage backgroundFor(GraphicsConfiguration config, AffineTransform transform, KeyLayout keys,
+                                        int width, int height) {
+        boolean shaded = laneShadingEnabled;
+        // On a HiDPI screen the graphics scale user space up; cover the same number of device pixels
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        int deviceWidth = (int) Math.ceil(width * scaleX);
+        int deviceHeight = (int) Math.ceil(height * scaleY);
+        if (background != null && background.getWidth() == deviceWidth && background.getHeight() == deviceHeight
+                && backgroundKeys == keys && backgroundConfig == config && backgroundShaded == shaded) {
+            return background;
+        }
+        if (background != null) background.flush();
+        background = config.createCompatibleImage(deviceWidth, deviceHeight, Transparency.OPAQUE);
+        backgroundKeys = keys;
+        backgroundConfig = config;
+        backgroundShaded = shaded;
+
+        Graphics2D g = background.createGraphics();
+        g.scale(deviceWidth / (double) width, deviceHeight / (double) height);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(getBackground());
+        g.fillRect(0, 0, width, height);
+        if (shaded) drawBlackKeyLanes(g, keys, height);
+        drawGridLines(g, keys, height);
+        g.dispose();
+        return background;
+    }
+
+    private void drawBlackKeyLanes(Graphics2D g2d, KeyLayout keys, int height) {
+        g2d.setColor(COLOR_BLACK_KEY_LANE);
+        for (int midiNote = keys.getLowestNote(); midiNote <= keys.getHighestNote(); midiNote++) {
+            if (keys.isBlack(midiNote)) {
+                g2d.fillRect(keys.x(midiNote), 0, keys.width(midiNote), height);
+            }
         }
     }
 
-    private void drawGridLines(Graphics2D g2d) {
+    private void drawGridLines(Graphics2D g2d, KeyLayout keys, int height) {
         g2d.setColor(COLOR_GRID_LINE);
-        for (int midiNote = lowestNote; midiNote <= highestNote; midiNote++) {
+        for (int midiNote = keys.getLowestNote(); midiNote <= keys.getHighestNote(); midiNote++) {
             if (midiNote % 12 == 0) { // Draw a line at the start of every C key
-                PianoWindow.KeyInfo keyInfo = keyInfoProvider.apply(midiNote);
-                if (keyInfo != null && !keyInfo.isBlack()) {
-                    g2d.drawLine(keyInfo.x(), 0, keyInfo.x(), getHeight());
-                }
+                g2d.drawLine(keys.x(midiNote), 0, keys.x(midiNote), height);
             }
         }
     }
 
     public Color getAssignedHighlightColor(int midiNote) {
-        long t = getCurrentTimeMillis();
-        for (int i = notes.size() - 1; i >= 0; i--) {
-            FallingNote n = notes.get(i);
-            if (n.midiNote == midiNote && t >= n.noteOnTime && t < n.noteOffTime && n.hand != null) {
-                Color semiTransparentColor = colorForHighlight(n);
-                return new Color(semiTransparentColor.getRed(), semiTransparentColor.getGreen(), semiTransparentColor.getBlue(), 255);
-            }
+        NoteTimeline notes = timeline;
+        int index = notes.noteSoundingAt(midiNote, getCurrentTimeMillis());
+        if (index < 0) return null;
+
+        byte hand = notes.getHand(index);
+        boolean isBlack = notes.isBlackKey(index);
+        if (hand == NoteTimeline.HAND_LEFT) {
+            return isBlack ? HIGHLIGHT_LEFT_BLACK : HIGHLIGHT_LEFT_WHITE;
+        } else if (hand == NoteTimeline.HAND_RIGHT) {
+            return isBlack ? HIGHLIGHT_RIGHT_BLACK : HIGHLIGHT_RIGHT_WHITE;
         }
         return null;
     }
 
-    private Color colorForHighlight(FallingNote n) {
-        boolean isLeft = (n.hand == FallingNote.Hands.LEFT);
-        boolean isBlack = n.isBlackKey;
-        return isLeft ? (isBlack ? COLOR_LEFT_BLACK : COLOR_LEFT_WHITE)
-                : (isBlack ? COLOR_RIGHT_BLACK : COLOR_RIGHT_WHITE);
+    private static Color opaque(Color color) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(), 255);
     }
 
     private class NoteClickHandler extends MouseAdapter {
@@ -208,13 +306,17 @@ public class AnimationPanel extends JPanel {
                 return;
             }
 
-            for (int i = notes.size() - 1; i >= 0; i--) {
-                FallingNote note = notes.get(i);
-                if (note.getBounds().contains(e.getPoint())) {
+            NoteTimeline notes = timeline;
+            KeyLayout keys = keyLayout.get();
+            long now = getCurrentTimeMillis();
+            int first = notes.firstPossiblySoundingAt(now);
+            for (int i = lastVisibleCandidate(notes, now) - 1; i >= first; i--) {
+                if (computeNoteBounds(keys, notes, i, now, getHeight(), noteBounds)
+                        && noteBounds.contains(e.getPoint())) {
                     if (SwingUtilities.isRightMouseButton(e)) {
-                        note.setHand(FallingNote.Hands.RIGHT);
+                        notes.setHand(i, NoteTimeline.HAND_RIGHT);
                     } else if (SwingUtilities.isLeftMouseButton(e)) {
-                        note.setHand(FallingNote.Hands.LEFT);
+                        notes.setHand(i, NoteTimeline.HAND_LEFT);
                     }
                     repaint();
                     return;
@@ -232,8 +334,8 @@ public class AnimationPanel extends JPanel {
         public void mousePressed(MouseEvent e) {
             isDragging = true;
             pressY = e.getY();
-            pressTime = currentTimeMillis;
-            setCursor(Cursor.getPredefinedCursor(Cursor.N_RESIZE_CURSOR));
+            pressTime = getCurrentTimeMillis();
+            e.getComponent().setCursor(Cursor.getPredefinedCursor(Cursor.N_RESIZE_CURSOR));
             if (onDragStart != null) onDragStart.run();
         }
 
@@ -247,8 +349,8 @@ public class AnimationPanel extends JPanel {
 
             newTime = Math.max(0, Math.min(newTime, totalDurationMillis));
 
-            updatePlaybackTime(newTime);
-            repaint();
+            clock.seek(newTime * 1000);
+            requestFrame();
             if (onTimeChange != null) onTimeChange.accept(newTime);
         }
 
@@ -256,132 +358,94 @@ public class AnimationPanel extends JPanel {
         public void mouseReleased(MouseEvent e) {
             if (!isDragging) return;
             isDragging = false;
-            setCursor(Cursor.getDefaultCursor());
+            e.getComponent().setCursor(Cursor.getDefaultCursor());
             if (onDragEnd != null) onDragEnd.run();
         }
     }
 
-    private class FallingNote {
-        private enum Hands {
-            LEFT, RIGHT
-        }
-        private final int midiNote;
-        private final long noteOnTime;
-        private final long noteOffTime;
-        private final boolean isBlackKey;
-        private Hands hand = null;
-        private final Rectangle bounds = new Rectangle();
-
-        public FallingNote(int midiNote, long on, long off, boolean isBlackKey) {
-            this.midiNote = midiNote;
-            this.noteOnTime = on;
-            this.noteOffTime = off;
-            this.isBlackKey = isBlackKey;
-        }
-
-        public void setHand(Hands hand) { this.hand = hand; }
-        public Rectangle getBounds() { return this.bounds; }
-
-        public boolean matchesHandFilter(ListWindow.MidiFileActionListener.HandMode handMode) {
-            switch (handMode) {
-                case LEFT:  return this.hand == Hands.LEFT;
-                case RIGHT: return this.hand == Hands.RIGHT;
-                case BOTH:
-                default:    return true;
-            }
-        }
-
-        void draw(Graphics2D g, long currentMillis, int panelHeight) {
-            if (!shouldBeDrawnForPractice()) {
-                bounds.setBounds(0, 0, 0, 0);
-                return;
-            }
-
-            if (!isVisibleOnScreen(currentMillis)) {
-                bounds.setBounds(0, 0, 0, 0);
-                return;
-            }
-
-            PianoWindow.KeyInfo keyInfo = keyInfoProvider.apply(midiNote);
-            if (keyInfo == null) return;
+    private boolean matchesHandFilter(byte hand, ListWindow.MidiFileActionListener.HandMode handMode) {
+        byte filter = handFilterFor(handMode);
+        return filter == NoteTimeline.ANY_HAND || hand == filter;
+    }
 
-            int noteHeight = (int) ((noteOffTime - noteOnTime) * PIXELS_PER_MILLISECOND);
-            int topY = calculateTopY(currentMillis, noteHeight, panelHeight);
-            bounds.setBounds(keyInfo.x(), topY, keyInfo.width(), noteHeight);
+    private void drawNote(Graphics2D g, KeyLayout keys, NoteTimeline notes, int index, long currentMillis, int panelHeight) {
+        if (!computeNoteBounds(keys, notes, index, currentMillis, panelHeight, paintBounds)) return;
 
-            if (topY < panelHeight && (topY + noteHeight) > 0) {
-                drawNoteBody(g, noteHeight);
-                if (isHandAssignmentEnabled && hand != null) {
-                    drawHandText(g);
-                }
+        if (paintBounds.y < panelHeight && (paintBounds.y + paintBounds.height) > 0) {
+            byte hand = notes.getHand(index);
+            drawNoteBody(g, determineNoteColor(hand, notes.isBlackKey(index)), paintBounds);
+            if (isHandAssignmentEnabled && hand != NoteTimeline.HAND_NONE) {
+                drawHandText(g, hand, paintBounds);
             }
         }
+    }
 
-        private boolean shouldBeDrawnForPractice() {
-            if (practiceFilterMode == ListWindow.MidiFileActionListener.HandMode.LEFT && hand != Hands.LEFT) {
-                return false;
-            }
-            if (practiceFilterMode == ListWindow.MidiFileActionListener.HandMode.RIGHT && hand != Hands.RIGHT) {
-                return false;
-            }
-            return true;
-        }
+    /**
+     * Computes where a note is on screen at the given time.
+     * Returns false when the note is filtered out or not inside its fall/sink window.
+     */
+    private boolean computeNoteBounds(KeyLayout keys, NoteTimeline notes, int index, long currentMillis, int panelHeight, Rectangle out) {
+        byte hand = notes.getHand(index);
+        if (!matchesHandFilter(hand, practiceFilterMode)) return false;
+
+        long noteOnTime = notes.getOn(index);
+        long noteOffTime = notes.getOff(index);
+        if (!isVisibleOnScreen(noteOnTime, noteOffTime, currentMillis)) return false;
+
+        int pitch = notes.getPitch(index);
+        if (!keys.contains(pitch)) return false;
+
+        int noteHeight = (int) ((noteOffTime - noteOnTime) * PIXELS_PER_MILLISECOND);
+        int topY = calculateTopY(noteOnTime, noteOffTime, currentMillis, noteHeight, panelHeight);
+        out.setBounds(keys.x(pitch), topY, keys.width(pitch), noteHeight);
+        return true;
+    }
 
-        private boolean isVisibleOnScreen(long currentMillis) {
-            long fallStartTime = noteOnTime - NOTE_FALL_DURATION_MS;
-            return currentMillis >= fallStartTime && currentMillis <= noteOffTime;
-        }
+    private boolean isVisibleOnScreen(long noteOnTime, long noteOffTime, long currentMillis) {
+        long fallStartTime = noteOnTime - NOTE_FALL_DURATION_MS;
+        return currentMillis >= fallStartTime && currentMillis <= noteOffTime;
+    }
 
-        private int calculateTopY(long currentMillis, int noteHeight, int panelHeight) {
-            long fallStartTime = noteOnTime - NOTE_FALL_DURATION_MS;
-            int bottomY = (currentMillis < noteOnTime)
-                    ? calculateFallingY(currentMillis, fallStartTime, noteHeight, panelHeight)
-                    : calculateSinkingY(currentMillis, noteHeight, panelHeight);
-            return bottomY - noteHeight;
-        }
+    private int calculateTopY(long noteOnTime, long noteOffTime, long currentMillis, int noteHeight, int panelHeight) {
+        long fallStartTime = noteOnTime - NOTE_FALL_DURATION_MS;
+        int bottomY = (currentMillis < noteOnTime)
+                ? calculateFallingY(currentMillis, fallStartTime, noteHeight, panelHeight)
+                : calculateSinkingY(noteOnTime, noteOffTime, currentMillis, noteHeight, panelHeight);
+        return bottomY - noteHeight;
+    }
 
-        private Color determineNoteColor() {
-            if (hand == Hands.LEFT) {
-                return isBlackKey ? COLOR_LEFT_BLACK : COLOR_LEFT_WHITE;
-            } else if (hand == Hands.RIGHT) {
-                return isBlackKey ? COLOR_RIGHT_BLACK : COLOR_RIGHT_WHITE;
-            } else {
-                return isBlackKey ? COLOR_BLACK_NOTE : COLOR_WHITE_NOTE;
-            }
+    private Color determineNoteColor(byte hand, boolean isBlackKey) {
+        if (hand == NoteTimeline.HAND_LEFT) {
+            return isBlackKey ? COLOR_LEFT_BLACK : COLOR_LEFT_WHITE;
+        } else if (hand == NoteTimeline.HAND_RIGHT) {
+            return isBlackKey ? COLOR_RIGHT_BLACK : COLOR_RIGHT_WHITE;
+        } else {
+            return isBlackKey ? COLOR_BLACK_NOTE : COLOR_WHITE_NOTE;
         }
+    }
 
-        private void drawNoteBody(Graphics2D g, int noteHeight) {
-            g.setColor(determineNoteColor());
-            g.fillRoundRect(bounds.x, bounds.y, bounds.width, noteHeight, NOTE_CORNER_RADIUS, NOTE_CORNER_RADIUS);
-        }
+    private void drawNoteBody(Graphics2D g, Color color, Rectangle bounds) {
+        spriteCache.drawNote(g, color, bounds.x, bounds.y, bounds.width, bounds.height);
+    }
 
-        private void drawHandText(Graphics2D g) {
-            String text = (hand == Hands.LEFT) ? "L" : "R";
-            g.setFont(NOTE_TEXT_FONT);
-            g.setColor(NOTE_TEXT_COLOR);
-            FontMetrics fm = g.getFontMetrics();
-            int textWidth = fm.stringWidth(text);
-            int textHeight = fm.getAscent();
-            int textX = bounds.x + (bounds.width - textWidth) / 2;
-            int textY = bounds.y + (bounds.height + textHeight) / 2;
-            g.drawString(text, textX, textY);
-        }
+    private void drawHandText(Graphics2D g, byte hand, Rectangle bounds) {
+        spriteCache.drawLabel(g, hand == NoteTimeline.HAND_LEFT, bounds.x, bounds.y, bounds.width, bounds.height);
+    }
 
-        private int calculateFallingY(long currentMillis, long fallStartTime, int noteHeight, int panelHeight) {
-            double progress = (double) (currentMillis - fallStartTime) / NOTE_FALL_DURATION_MS;
-            int startY = -noteHeight;
-            int endY = panelHeight;
-            return (int) (startY + progress * (endY - startY));
-        }
+    private int calculateFallingY(long currentMillis, long fallStartTime, int noteHeight, int panelHeight) {
+        double progress = (double) (currentMillis - fallStartTime) / NOTE_FALL_DURATION_MS;
+        int startY = -noteHeight;
+        int endY = panelHeight;
+        return (int) (startY + progress * (endY - startY));
+    }
 
-        private int calculateSinkingY(long currentMillis, int noteHeight, int panelHeight) {
-            long noteDuration = noteOffTime - noteOnTime;
-            if (noteDuration <= 0) return panelHeight;
+    private int calculateSinkingY(long noteOnTime, long noteOffTime, long currentMillis, int noteHeight, int panelHeight) {
+        long noteDuration = noteOffTime - noteOnTime;
+        if (noteDuration <= 0) return panelHeight;
 
-            double progress = (double) (currentMillis - noteOnTime) / noteDuration;
-            int startY = panelHeight;
-            int endY = panelHeight + noteHeight;
-            return (int) (startY + progress * (endY - startY));
-        }
+        double progress = (double) (currentMillis - noteOnTime) / noteDuration;
+        int startY = panelHeight;
+        int endY = panelHeight + noteHeight;
+        return (int) (startY + progress * (endY - startY));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.Tbence132545.Melodigram.view;
+
+/**
+ * Where every key of the keyboard is, indexed by MIDI note. A layout is computed once per size and never
+ * changed afterwards, so the keyboard and the animation's render thread can share it without locking;
+ * a resize publishes a new one. Notes outside the keyboard's range have a width of 0.
+ */
+public final class KeyLayout {
+
+    public static final int NOTE_COUNT = 128;
+    private static final double BLACK_KEY_WIDTH_RATIO = 0.6;
+    private static final boolean[] BLACK = new boolean[NOTE_COUNT];
+
+    static {
+        boolean[] pattern = {false, true, false, true, false, false, true, false, true, false, true, false};
+        for (int note = 0; note < NOTE_COUNT; note++) {
+            BLACK[note] = pattern[note % 12];
+        }
+    }
+
+    private final int lowestNote;
+    private final int highestNote;
+    private final int totalWidth;
+    private final int[] x = new int[NOTE_COUNT];
+    private final int[] width = new int[NOTE_COUNT];
+
+    private KeyLayout(int lowestNote, int highestNote, int totalWidth) {
+        this.lowestNote = lowestNote;
+        this.highestNote = highestNote;
+        this.totalWidth = totalWidth;
+    }
+
+    /** Spreads the white keys of the range evenly over {@code totalWidth}; black keys straddle their neighbours. */
+    public static KeyLayout compute(int lowestNote, int highestNote, int totalWidth) {
+        KeyLayout layout = new KeyLayout(lowestNote, highestNote, totalWidth);
+        int whiteKeyCount = 0;
+        for (int note = lowestNote; note <= highestNote; note++) {
+            if (!BLACK[note]) whiteKeyCount++;
+        }
+        if (whiteKeyCount == 0) return layout;
+
+        int whiteKeyWidth = totalWidth / whiteKeyCount;
+        int blackKeyWidth = (int) (whiteKeyWidth * BLACK_KEY_WIDTH_RATIO);
+        int whiteKeyIndex = 0;
+        for (int note = lowestNote; note <= highestNote; note++) {
+            if (BLACK[note]) {
+                // A range starting on a black key has no white key to its left; keep that key on screen
+                layout.x[note] = Math.max(0, (whiteKeyIndex - 1) * whiteKeyWidth + (whiteKeyWidth - blackKeyWidth / 2));
+                layout.width[note] = blackKeyWidth;
+            } else {
+                layout.x[note] = whiteKeyIndex * whiteKeyWidth;
+                layout.width[note] = whiteKeyWidth;
+                whiteKeyIndex++;
+            }
+        }
+        return layout;
+    }
+
+    public static boolean isBlackKey(int midiNote) {
+        return BLACK[midiNote];
+    }
+
+    public int getLowestNote() {
+        return lowestNote;
+    }
+
+    public int getHighestNote() {
+        return highestNote;
+    }
+
+    /** The width the keys were spread over. */
+    public int getTotalWidth() {
+        return totalWidth;
+    }
+
+    public boolean contains(int midiNote) {
+        return midiNote >= lowestNote && midiNote <= highestNote;
+    }
+
+    public int x(int midiNote) {
+        return x[midiNote];
+    }
+
+    public int width(int midiNote) {
+        return width[midiNote];
+    }
+
+    public boolean isBlack(int midiNote) {
+        return BLACK[midiNote];
+    }
+}
@@ -1,12 +1,16 @@
 package com.Tbence132545.Melodigram.view;
 
-import com.Tbence132545.Melodigram.controller.PlaybackController;
 import com.Tbence132545.Melodigram.model.HandAssignmentService;
-import com.Tbence132545.Melodigram.model.MidiFileService;
+import com.Tbence132545.Melodigram.model.LibraryCatalog;
+import com.Tbence132545.Melodigram.model.SongSearchIndex;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ListWindow extends JFrame {
 
@@ -17,7 +21,27 @@ public class ListWindow extends JFrame {
         void onAssignHandsClicked(String midiFilename);
     }
 
-    private final JPanel contentPanel;
+    private static final String[] NOTE_NAMES = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+
+    private static final Color ROW_BACKGROUND = new Color(40, 40, 40);
+    private static final Color ROW_HIGHLIGHT = new Color(200, 60, 60);
+    private static final int ROW_HEIGHT = 44;
+    private static final String MAIN_ACTIONS = "MAIN_ACTIONS";
+    private static final String PRACTICE_OPTIONS = "PRACTICE_OPTIONS";
+
+    private final SongListModel songModel = new SongListModel();
+    private final JList<LibraryCatalog.SongInfo> songList;
+    private final JPanel actionPanel;
+    private final JLabel actionTitle;
+    private final JPanel actionCards;
+    private final CardLayout actionLayout = new CardLayout();
+    private MidiFileActionListener actionListener;
+    /** The song whose actions are showing; unlike the list's selection, it does not change until a click is released. */
+    private String shownSong;
+    private JTextField searchField;
+    private JCheckBox assignedOnlyBox;
+    private JComboBox<SongSearchIndex.DurationFilter> durationBox;
+    private JComboBox<SongSearchIndex.RangeFilter> rangeBox;
     private JButton backButton;
     private JButton importButton;
 
@@ -48,19 +72,128 @@ public class ListWindow extends JFrame {
         topPanel.add(buttonPanel, BorderLayout.EAST);
         mainPanel.add(topPanel, BorderLayout.NORTH);
 
-        // Scrollable content
-        contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBackground(Color.BLACK);
+        // Only the visible rows are painted, by a single renderer, so the list costs the same for any library size
+        songList = new JList<>(songModel) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (getModel().getSize() == 0) {
+                    String message = songModel.isLibraryEmpty()
+                            ? "No MIDI files found or error loading folder."
+                            : "No songs match the search.";
+                    g.setColor(Color.WHITE);
+                    g.setFont(getFont());
+                    g.drawString(message, 15, g.getFontMetrics().getAscent() + 10);
+                }
+            }
+        };
+        songList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        songList.setFixedCellHeight(ROW_HEIGHT);
+        songList.setBackground(Color.BLACK);
+        songList.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        SongRowRenderer renderer = new SongRowRenderer();
+        songList.setCellRenderer(renderer);
+        songList.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
+            @Override
+            public void mouseMoved(java.awt.event.MouseEvent evt) { renderer.setHoverIndex(songList, rowAt(evt.getPoint())); }
+        });
+        songList.addMouseListener(new java.awt.event.MouseAdapter() {
+            // The list's own handler has already selected the pressed row, so remember the song shown before the press
+            private String songShownAtPress;
+            @Override
+            public void mouseExited(java.awt.event.MouseEvent evt) { renderer.setHoverIndex(songList, -1); }
+            @Override
+            public void mousePressed(java.awt.event.MouseEvent evt) { songShownAtPress = shownSong; }
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                // Clicking the open song again collapses its actions, like the old expandable rows
+                int row = rowAt(evt.getPoint());
+                if (row >= 0 && songShownAtPress != null
+                        && songShownAtPress.equals(songModel.getElementAt(row).fileName())) {
+                    songList.clearSelection();
+                }
+            }
+        });
+        songList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) showActionsForSelection();
+        });
 
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        JScrollPane scrollPane = new JScrollPane(songList);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getViewport().setBackground(Color.BLACK);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+
+        actionTitle = new JLabel();
+        actionTitle.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        actionTitle.setForeground(Color.WHITE);
+        actionTitle.setBorder(BorderFactory.createEmptyBorder(0, 15, 0, 10));
+        actionCards = new JPanel(actionLayout);
+        actionCards.setOpaque(false);
+        actionCards.add(createMainActions(), MAIN_ACTIONS);
+        actionCards.add(createPracticeOptions(), PRACTICE_OPTIONS);
+
+        actionPanel = new JPanel(new BorderLayout());
+        actionPanel.setBackground(ROW_BACKGROUND);
+        actionPanel.add(actionTitle, BorderLayout.WEST);
+        actionPanel.add(actionCards, BorderLayout.CENTER);
+        actionPanel.setVisible(false); // shown for the selected song
+
+        JPanel listPanel = new JPanel(new BorderLayout(0, 10));
+        listPanel.setBackground(Color.BLACK);
+        listPanel.add(createSearchBar(), BorderLayout.NORTH);
+        listPanel.add(scrollPane, BorderLayout.CENTER);
+        listPanel.add(actionPanel, BorderLayout.SOUTH);
+        mainPanel.add(listPanel, BorderLayout.CENTER);
 
         add(mainPanel);
     }
 
+    /** Search field and filters; every change re-queries the song index. */
+    private JPanel createSearchBar() {
+        JPanel searchBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        searchBar.setBackground(Color.BLACK);
+
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        searchLabel.setForeground(Color.WHITE);
+
+        searchField = new JTextField(24);
+        searchField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { applyQuery(); }
+            @Override public void removeUpdate(DocumentEvent e) { applyQuery(); }
+            @Override public void changedUpdate(DocumentEvent e) { applyQuery(); }
+        });
+
+        assignedOnlyBox = new JCheckBox("Hands assigned");
+        assignedOnlyBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        assignedOnlyBox.setForeground(Color.WHITE);
+        assignedOnlyBox.setOpaque(false);
+        assignedOnlyBox.setFocusPainted(false);
+        assignedOnlyBox.addActionListener(e -> applyQuery());
+
+        durationBox = new JComboBox<>(SongSearchIndex.DurationFilter.values());
+        durationBox.addActionListener(e -> applyQuery());
+        rangeBox = new JComboBox<>(SongSearchIndex.RangeFilter.values());
+        rangeBox.addActionListener(e -> applyQuery());
+
+        searchBar.add(searchLabel);
+        searchBar.add(searchField);
+        searchBar.add(assignedOnlyBox);
+        searchBar.add(durationBox);
+        searchBar.add(rangeBox);
+        return searchBar;
+    }
+
+    private void applyQuery() {
+        String selected = selectedFileName();
+        songModel.setQuery(new SongSearchIndex.Query(
+                searchField.getText(),
+                assignedOnlyBox.isSelected(),
+                (SongSearchIndex.DurationFilter) durationBox.getSelectedItem(),
+                (SongSearchIndex.RangeFilter) rangeBox.getSelectedItem()));
+        reselect(selected);
+    }
+
     private JButton createModernButton(String text) {
         JButton button = new JButton(text) {
             @Override
@@ -98,135 +231,269 @@ public class ListWindow extends JFrame {
         this.backButton.addActionListener(listener);
     }
 
-    public void setMidiFileList(String[] fileNames, MidiFileActionListener listener) {
-        contentPanel.removeAll();
-        if (fileNames != null && fileNames.length > 0) {
-            for (String name : fileNames) {
-                contentPanel.add(new CollapsiblePanel(name, listener));
-            }
+    public void setSongList(List<LibraryCatalog.SongInfo> songs, MidiFileActionListener listener) {
+        this.actionListener = listener;
+        songList.clearSelection();
+        songModel.setSongs(songs);
+    }
+
+    /** Replaces the list with a fresh catalog snapshot, keeping the selected song selected. */
+    public void showSnapshot(List<LibraryCatalog.SongInfo> songs) {
+        String selected = selectedFileName();
+        songModel.setSongs(songs);
+        reselect(selected);
+    }
+
+    /**
+     * Applies catalog changes in place: known songs get their metadata refreshed,
+     * new songs are inserted at their sorted position.
+     */
+    public void addOrUpdateSongs(List<LibraryCatalog.SongInfo> songs) {
+        String selected = selectedFileName();
+        for (LibraryCatalog.SongInfo song : songs) {
+            songModel.addOrUpdate(song);
+        }
+        reselect(selected);
+    }
+
+    public void removeSongs(List<String> fileNames) {
+        String selected = selectedFileName();
+        for (String name : fileNames) {
+            songModel.remove(name);
+        }
+        reselect(selected);
+    }
+
+    private String selectedFileName() {
+        LibraryCatalog.SongInfo song = songList.getSelectedValue();
+        return (song != null) ? song.fileName() : null;
+    }
+
+    /** Keeps the same song selected after rows were inserted or removed above it. */
+    private void reselect(String fileName) {
+        int index = (fileName != null) ? songModel.indexOf(fileName) : -1;
+        if (index >= 0) {
+            if (songList.getSelectedIndex() != index) songList.setSelectedIndex(index);
         } else {
-            JLabel emptyLabel = new JLabel("No MIDI files found or error loading folder.");
-            emptyLabel.setForeground(Color.WHITE);
-            contentPanel.add(emptyLabel);
+            songList.clearSelection();
         }
-        contentPanel.add(Box.createVerticalGlue());
-        contentPanel.revalidate();
-        contentPanel.repaint();
     }
 
-    private static class CollapsiblePanel extends JPanel {
-        private final JButton titleButton;
-        private final JPanel cardsPanel;
-        private final CardLayout cardLayout;
+    private int rowAt(Point point) {
+        int row = songList.locationToIndex(point);
+        return (row >= 0 && songList.getCellBounds(row, row).contains(point)) ? row : -1;
+    }
 
-        private static final String MAIN_ACTIONS = "MAIN_ACTIONS";
-        private static final String PRACTICE_OPTIONS = "PRACTICE_OPTIONS";
+    private void showActionsForSelection() {
+        String selected = selectedFileName();
+        shownSong = selected;
+        actionLayout.show(actionCards, MAIN_ACTIONS);
+        actionTitle.setText(selected);
+        actionPanel.setVisible(selected != null);
+        if (selected != null) songList.ensureIndexIsVisible(songList.getSelectedIndex());
+        actionPanel.revalidate();
+    }
 
-        public CollapsiblePanel(String title, MidiFileActionListener listener) {
-            super(new BorderLayout());
-            setAlignmentX(Component.LEFT_ALIGNMENT);
-            setBackground(Color.BLACK);
-
-            // Title button
-            titleButton = new JButton(title);
-            titleButton.setHorizontalAlignment(SwingConstants.LEFT);
-            titleButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
-            titleButton.setFocusPainted(false);
-            titleButton.setContentAreaFilled(false);
-            titleButton.setOpaque(true);
-            titleButton.setBackground(new Color(40, 40, 40));
-            titleButton.setForeground(Color.WHITE);
-            titleButton.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
-            titleButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-            titleButton.addMouseListener(new java.awt.event.MouseAdapter() {
-                @Override
-                public void mouseEntered(java.awt.event.MouseEvent evt) { titleButton.setBackground(new Color(200, 60, 60)); }
-                @Override
-                public void mouseExited(java.awt.event.MouseEvent evt) { titleButton.setBackground(new Color(40, 40, 40)); }
-            });
-
-            cardLayout = new CardLayout();
-            cardsPanel = new JPanel(cardLayout);
-            cardsPanel.setOpaque(false);
-            cardsPanel.setVisible(false); // start collapsed
-
-            JPanel mainActionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
-            mainActionsPanel.setOpaque(false);
-
-            JButton listenButton = createCardButton("Listen and watch", e -> listener.onWatchAndListenClicked("midi/" + title));
-            JButton practiceButton = createCardButton("Practice", null); // listener added below
-            JButton assignHandsButton = createCardButton("Assign Hands", e -> listener.onAssignHandsClicked("midi/" + title));
-
-            mainActionsPanel.add(listenButton);
-            mainActionsPanel.add(practiceButton);
-            mainActionsPanel.add(assignHandsButton);
-
-            JPanel practiceOptionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
-            practiceOptionsPanel.setOpaque(false);
-
-            practiceButton.addActionListener(e -> {
-                boolean hasAssignments = HandAssignmentService.assignmentFileExistsFor(title);
-                if (hasAssignments) {
-                    JButton left = createCardButton("Just Left Hand", ev -> listener.onPracticeClicked(title, MidiFileActionListener.HandMode.LEFT));
-                    JButton right = createCardButton("Just Right Hand", ev -> listener.onPracticeClicked(title, MidiFileActionListener.HandMode.RIGHT));
-                    JButton both = createCardButton("Both Hands", ev -> listener.onPracticeClicked(title, MidiFileActionListener.HandMode.BOTH));
-                    JButton back = createCardButton("<- Back", ev -> {
-                        cardLayout.show(cardsPanel, MAIN_ACTIONS);
-                        updatePanelHeight();
-                    });
-                    practiceOptionsPanel.removeAll();
-                    practiceOptionsPanel.add(left);
-                    practiceOptionsPanel.add(right);
-                    practiceOptionsPanel.add(both);
-                    practiceOptionsPanel.add(back);
-
-                    cardsPanel.add(practiceOptionsPanel, PRACTICE_OPTIONS);
-                    cardLayout.show(cardsPanel, PRACTICE_OPTIONS);
-                } else {
-                    listener.onPracticeClicked(title, MidiFileActionListener.HandMode.BOTH);
-                }
-                updatePanelHeight();
-            });
-            cardsPanel.add(mainActionsPanel, MAIN_ACTIONS);
-            titleButton.addActionListener(e -> toggleVisibility());
-
-            add(titleButton, BorderLayout.NORTH);
-            add(cardsPanel, BorderLayout.CENTER);
-            updatePanelHeight();
-        }
-
-        private JButton createCardButton(String text, ActionListener listener) {
-            JButton button = new JButton(text);
-            button.setFocusPainted(false);
-            button.setContentAreaFilled(false);
-            button.setOpaque(true);
-            button.setBackground(new Color(180, 40, 40));
-            button.setForeground(Color.WHITE);
-            button.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-            button.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
-            if (listener != null) button.addActionListener(listener);
-            button.addMouseListener(new java.awt.event.MouseAdapter() {
-                @Override public void mouseEntered(java.awt.event.MouseEvent evt) { button.setBackground(new Color(220, 60, 60)); }
-                @Override public void mouseExited(java.awt.event.MouseEvent evt) { button.setBackground(new Color(180, 40, 40)); }
-            });
-            return button;
-        }
-
-        private void toggleVisibility() {
-            cardsPanel.setVisible(!cardsPanel.isVisible());
-            updatePanelHeight();
-            revalidate();
-            repaint();
-        }
-
-        private void updatePanelHeight() {
-            int contentHeight = 0;
-            for (Component comp : cardsPanel.getComponents()) {
-                if (comp.isVisible()) contentHeight = comp.getPreferredSize().height;
+    private JPanel createMainActions() {
+        JPanel mainActionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
+        mainActionsPanel.setOpaque(false);
+        mainActionsPanel.add(createCardButton("Listen and watch", e -> actionListener.onWatchAndListenClicked("midi/" + selectedFileName())));
+        mainActionsPanel.add(createCardButton("Practice", e -> onPracticeSelected()));
+        mainActionsPanel.add(createCardButton("Assign Hands", e -> actionListener.onAssignHandsClicked("midi/" + selectedFileName())));
+        return mainActionsPanel;
+    }
+
+    private JPanel createPracticeOptions() {
+        JPanel practiceOptionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
+        practiceOptionsPanel.setOpaque(false);
+        practiceOptionsPanel.add(createCardButton("Just Left Hand", e -> actionListener.onPracticeClicked(selectedFileName(), MidiFileActionListener.HandMode.LEFT)));
+        practiceOptionsPanel.add(createCardButton("Just Right Hand", e -> actionListener.onPracticeClicked(selectedFileName(), MidiFileActionListener.HandMode.RIGHT)));
+        practiceOptionsPanel.add(createCardButton("Both Hands", e -> actionListener.onPracticeClicked(selectedFileName(), MidiFileActionListener.HandMode.BOTH)));
+        practiceOptionsPanel.add(createCardButton("<- Back", e -> actionLayout.show(actionCards, MAIN_ACTIONS)));
+        return practiceOptionsPanel;
+    }
+
+    private void onPracticeSelected() {
+        String title = selectedFileName();
+        if (title == null) return;
+        // Usually answered at once from the manifest; a song not analyzed yet is looked at in the background
+        HandAssignmentService.assignmentFileExistsFor(title).thenAccept(exists -> SwingUtilities.invokeLater(() -> {
+            if (!title.equals(selectedFileName())) return;
+            if (exists) {
+                actionLayout.show(actionCards, PRACTICE_OPTIONS);
+            } else {
+                actionListener.onPracticeClicked(title, MidiFileActionListener.HandMode.BOTH);
             }
-            int height = titleButton.getPreferredSize().height + contentHeight;
-            setMaximumSize(new Dimension(Integer.MAX_VALUE, height));
+        }));
+    }
+
+    private JButton createCardButton(String text, ActionListener listener) {
+        JButton button = new JButton(text);
+        button.setFocusPainted(false);
+        button.setContentAreaFilled(false);
+        button.setOpaque(true);
+        button.setBackground(new Color(180, 40, 40));
+        button.setForeground(Color.WHITE);
+        button.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+        if (listener != null) button.addActionListener(listener);
+        button.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override public void mouseEntered(java.awt.event.MouseEvent evt) { button.setBackground(new Color(220, 60, 60)); }
+            @Override public void mouseExited(java.awt.event.MouseEvent evt) { button.setBackground(new Color(180, 40, 40)); }
+        });
+        return button;
+    }
+
+    private static String formatSongInfo(LibraryCatalog.SongInfo song) {
+        if (!song.analyzed()) return "Analyzing...";
+        long seconds = song.durationMicros() / 1_000_000;
+        String text = String.format("%d:%02d  |  %d notes  |  %s-%s  |  %s",
+                seconds / 60, seconds % 60, song.noteCount(),
+                noteName(song.lowestNote()), noteName(song.highestNote()),
+                capitalize(song.difficulty().name()));
+        return song.hasAssignments() ? text + "  |  Hands assigned" : text;
+    }
+
+    private static String noteName(int midiNote) {
+        return NOTE_NAMES[midiNote % 12] + ((midiNote / 12) - 1);
+    }
+
+    private static String capitalize(String name) {
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    /**
+     * The songs matching the current query, sorted by file name. The whole library lives in a search index;
+     * a new query re-runs the search, while catalog updates only touch the row of the song that changed.
+     */
+    private static class SongListModel extends AbstractListModel<LibraryCatalog.SongInfo> {
+        private final SongSearchIndex index = new SongSearchIndex();
+        private SongSearchIndex.Query query = SongSearchIndex.Query.ALL;
+        private List<LibraryCatalog.SongInfo> songs = new ArrayList<>();
+
+        @Override
+        public int getSize() {
+            return songs.size();
+        }
+
+        @Override
+        public LibraryCatalog.SongInfo getElementAt(int index) {
+            return songs.get(index);
+        }
+
+        boolean isLibraryEmpty() {
+            return index.size() == 0;
+        }
+
+        /**
+         * Replaces the library with a snapshot. A snapshot is built while songs may still be analyzed, so a
+         * result delivered before it is kept rather than turned back into a pending entry.
+         */
+        void setSongs(List<LibraryCatalog.SongInfo> newSongs) {
+            List<LibraryCatalog.SongInfo> merged = new ArrayList<>(newSongs.size());
+            for (LibraryCatalog.SongInfo song : newSongs) {
+                LibraryCatalog.SongInfo known = index.find(song.fileName());
+                merged.add(!song.analyzed() && known != null && known.analyzed() ? known : song);
+            }
+            index.clear();
+            for (LibraryCatalog.SongInfo song : merged) index.addOrUpdate(song);
+            refilter();
+        }
+
+        void setQuery(SongSearchIndex.Query newQuery) {
+            if (newQuery.equals(query)) return;
+            query = newQuery;
+            refilter();
+        }
+
+        private void refilter() {
+            int oldSize = songs.size();
+            songs = index.search(query);
+            if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+            if (!songs.isEmpty()) fireIntervalAdded(this, 0, songs.size() - 1);
+        }
+
+        void addOrUpdate(LibraryCatalog.SongInfo song) {
+            index.addOrUpdate(song);
+            int position = indexOf(song.fileName());
+            if (!query.matches(song)) {
+                removeAt(position);
+            } else if (position >= 0) {
+                songs.set(position, song);
+                fireContentsChanged(this, position, position);
+            } else {
+                position = -position - 1;
+                songs.add(position, song);
+                fireIntervalAdded(this, position, position);
+            }
+        }
+
+        void remove(String fileName) {
+            index.remove(fileName);
+            removeAt(indexOf(fileName));
+        }
+
+        private void removeAt(int position) {
+            if (position < 0) return;
+            songs.remove(position);
+            fireIntervalRemoved(this, position, position);
+        }
+
+        /** Position of the song in the visible list, or {@code -(insertion point) - 1} if it is not shown. */
+        int indexOf(String fileName) {
+            int lo = 0;
+            int hi = songs.size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = songs.get(mid).fileName().compareTo(fileName);
+                if (cmp < 0) lo = mid + 1;
+                else if (cmp > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+    }
+
+    /** One reusable row component: the song's name on the left, its details on the right. */
+    private static class SongRowRenderer extends JPanel implements ListCellRenderer<LibraryCatalog.SongInfo> {
+        private final JLabel nameLabel = new JLabel();
+        private final JLabel infoLabel = new JLabel();
+        private int hoverIndex = -1;
+
+        SongRowRenderer() {
+            super(new BorderLayout());
+            setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createMatteBorder(0, 0, 2, 0, Color.BLACK),
+                    BorderFactory.createEmptyBorder(10, 15, 10, 15)));
+            nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+            nameLabel.setForeground(Color.WHITE);
+            infoLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+            infoLabel.setForeground(new Color(190, 190, 190));
+            add(nameLabel, BorderLayout.CENTER);
+            add(infoLabel, BorderLayout.EAST);
+        }
+
+        void setHoverIndex(JList<?> list, int index) {
+            if (index == hoverIndex) return;
+            repaintRow(list, hoverIndex);
+            hoverIndex = index;
+            repaintRow(list, hoverIndex);
+        }
+
+        private static void repaintRow(JList<?> list, int index) {
+            if (index < 0 || index >= list.getModel().getSize()) return;
+            Rectangle bounds = list.getCellBounds(index, index);
+            if (bounds != null) list.repaint(bounds);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends LibraryCatalog.SongInfo> list, LibraryCatalog.SongInfo song,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            nameLabel.setText(song.fileName());
+            infoLabel.setText(formatSongInfo(song));
+            setBackground(isSelected || index == hoverIndex ? ROW_HIGHLIGHT : ROW_BACKGROUND);
+            return this;
         }
     }
 }
@@ -0,0 +1,92 @@
+package com.Tbence132545.Melodigram.view;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The main menu logo, scaled once and kept in memory. The scaled copy is also saved as a small PNG in
+ * the app's cache folder, so later launches skip decoding and scaling the full-size JPEG.
+ */
+public final class LogoCache {
+
+    private static final String LOGO_RESOURCE = "/images/logo.jpg";
+    private static final int SCALE_DIVISOR = 4;
+    private static final Path CACHE_DIR = Paths.get(System.getProperty("user.home"), ".Melodigram", "cache");
+
+    private static CompletableFuture<BufferedImage> logo;
+
+    private LogoCache() {
+    }
+
+    /** The scaled logo, loaded in the background on first call; completes with null if it cannot be read. */
+    public static synchronized CompletableFuture<BufferedImage> getLogo() {
+        if (logo == null) {
+            logo = CompletableFuture.supplyAsync(LogoCache::loadLogo);
+        }
+        return logo;
+    }
+
+    private static BufferedImage loadLogo() {
+        try {
+            URL source = LogoCache.class.getResource(LOGO_RESOURCE);
+            if (source == null) throw new IOException("Missing resource " + LOGO_RESOURCE);
+            // The source's size and modification time are part of the file name, so a replaced logo gets a new cache file
+            URLConnection connection = source.openConnection();
+            Path cached = CACHE_DIR.resolve("logo-" + connection.getContentLengthLong() + "-" + connection.getLastModified()
+                    + "-" + SCALE_DIVISOR + ".png");
+            if (Files.exists(cached)) {
+                BufferedImage image = ImageIO.read(cached.toFile());
+                if (image != null) return image;
+            }
+            BufferedImage full;
+            try (InputStream in = source.openStream()) {
+                full = ImageIO.read(in);
+            }
+            BufferedImage scaled = scaleDown(full, full.getWidth() / SCALE_DIVISOR, full.getHeight() / SCALE_DIVISOR);
+            saveQuietly(scaled, cached);
+            return scaled;
+        } catch (IOException e) {
+            System.err.println("Could not load logo image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Halves the image with bilinear filtering until it reaches the target size, which keeps it smooth. */
+    private static BufferedImage scaleDown(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        while (w > width || h > height) {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        }
+        return current;
+    }
+
+    private static void saveQuietly(BufferedImage image, Path file) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "logo", ".tmp");
+            ImageIO.write(image, "png", tmp.toFile());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not cache logo image: " + e.getMessage());
+        }
+    }
+}
@@ -3,14 +3,12 @@ package com.Tbence132545.Melodigram.view;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 
 public class MainWindow extends JFrame {
     private JButton playButton = createModernButton("Play");
     private JButton settingsButton = createModernButton("Settings");
     private JButton quitButton = createModernButton("Quit");
+    private Runnable firstPaintListener;
 
     public MainWindow() {
         setTitle("Melodigram");
@@ -19,28 +17,33 @@ public class MainWindow extends JFrame {
         setExtendedState(JFrame.MAXIMIZED_BOTH);
         setMinimumSize(new Dimension(800, 800));
         setLayout(new BorderLayout());
-        JPanel contentPanel = new JPanel(new GridBagLayout());
+        JPanel contentPanel = new JPanel(new GridBagLayout()) {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                Runnable listener = firstPaintListener;
+                firstPaintListener = null;
+                if (listener != null) listener.run();
+            }
+        };
         contentPanel.setBackground(Color.BLACK);
         contentPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         JPanel centerPanel = new JPanel();
         centerPanel.setLayout(new BoxLayout(centerPanel, BoxLayout.Y_AXIS));
         centerPanel.setOpaque(false);
 
-        try {
-            BufferedImage logoImage = ImageIO.read(getClass().getResourceAsStream("/images/logo.jpg"));
-            int newWidth = logoImage.getWidth() / 4;
-            int newHeight = logoImage.getHeight() /4;
-            Image resizedImage = logoImage.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
-
-            JLabel logoLabel = new JLabel(new ImageIcon(resizedImage));
-            logoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            centerPanel.add(logoLabel);
-            centerPanel.add(Box.createVerticalStrut(20));
-        } catch (IOException e) {
-            System.err.println("Could not load logo image: " + e.getMessage());
-        }
-
-
+        // The logo is scaled in the background; the window does not wait for it
+        JLabel logoLabel = new JLabel();
+        logoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        centerPanel.add(logoLabel);
+        centerPanel.add(Box.createVerticalStrut(20));
+        LogoCache.getLogo().thenAccept(logoImage -> {
+            if (logoImage == null) return;
+            SwingUtilities.invokeLater(() -> {
+                logoLabel.setIcon(new ImageIcon(logoImage));
+                centerPanel.revalidate();
+            });
+        });
 
         centerPanel.add(playButton);
         centerPanel.add(Box.createVerticalStrut(20));
@@ -59,6 +62,11 @@ public class MainWindow extends JFrame {
         setVisible(true);
     }
 
+    /** Runs once, on the EDT, after the window's content has been painted for the first time. */
+    public void setFirstPaintListener(Runnable listener) {
+        this.firstPaintListener = listener;
+    }
+
     private JButton createModernButton(String text) {
         JButton button = new JButton(text) {
             @Override
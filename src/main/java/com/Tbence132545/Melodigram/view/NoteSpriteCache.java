@@ -0,0 +1,186 @@
+package com.Tbence132545.Melodigram.view;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-rendered pieces of the falling notes, so a frame is made of image blits instead of antialiased shapes.
+ * For every (color, key width) there is a rounded top cap, a rounded bottom cap and a body strip that is
+ * tiled along the note's length; notes too short for two caps get a whole sprite of their own. The
+ * "L"/"R" hand labels are rendered once as well.
+ * <p>
+ * Images are compatible with the screen being drawn to and are dropped when the layout width or the
+ * graphics configuration changes. Only the thread that renders the notes may use the cache.
+ * <p>
+ * Sprites are made at user-space size, so they only match {@code fillRoundRect} when drawn unscaled. Under a
+ * HiDPI scale transform every blit would be upscaled and come out blurry, so the notes are drawn as shapes instead.
+ */
+final class NoteSpriteCache {
+
+    private static final int BODY_STRIP_HEIGHT = 32;
+
+    private final int cornerArc;
+    private final int capHeight;
+    private final Font labelFont;
+    private final Color labelColor;
+
+    private final Map<Long, NoteSprite> sprites = new HashMap<>();
+    private final Map<Long, BufferedImage> shortSprites = new HashMap<>();
+    private BufferedImage leftLabel;
+    private BufferedImage rightLabel;
+    private int labelAscent;
+
+    private GraphicsConfiguration config;
+    private int layoutWidth = -1;
+    private boolean scaled;
+
+    private record NoteSprite(BufferedImage top, BufferedImage body, BufferedImage bottom) {}
+
+    NoteSpriteCache(int cornerArc, Font labelFont, Color labelColor) {
+        this.cornerArc = cornerArc;
+        this.capHeight = (cornerArc + 1) / 2;
+        this.labelFont = labelFont;
+        this.labelColor = labelColor;
+    }
+
+    /**
+     * Drops every sprite if the target screen or the width the keys were laid out for has changed, and
+     * switches to drawing shapes while {@code transform} scales.
+     */
+    void validate(GraphicsConfiguration config, int layoutWidth, AffineTransform transform) {
+        scaled = transform.getScaleX() != 1 || transform.getScaleY() != 1
+                || transform.getShearX() != 0 || transform.getShearY() != 0;
+        if (config == this.config && layoutWidth == this.layoutWidth) return;
+        this.config = config;
+        this.layoutWidth = layoutWidth;
+        sprites.clear();
+        shortSprites.clear();
+        leftLabel = null;
+        rightLabel = null;
+    }
+
+    /** Draws the note exactly as {@code fillRoundRect} with the cache's corner arc would. */
+    void drawNote(Graphics2D g, Color color, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        if (scaled) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(color);
+            g.fillRoundRect(x, y, width, height, cornerArc, cornerArc);
+            return;
+        }
+        if (height < 2 * capHeight) {
+            g.drawImage(shortSprite(color, width, height), x, y, null);
+            return;
+        }
+        NoteSprite sprite = sprite(color, width);
+        g.drawImage(sprite.top, x, y, null);
+        // The body is tiled rather than scaled: unscaled blits stay on the fastest copy loops
+        int bodyEnd = y + height - capHeight;
+        for (int stripY = y + capHeight; stripY < bodyEnd; stripY += BODY_STRIP_HEIGHT) {
+            int rows = Math.min(BODY_STRIP_HEIGHT, bodyEnd - stripY);
+            g.drawImage(sprite.body, x, stripY, x + width, stripY + rows, 0, 0, width, rows, null);
+        }
+        g.drawImage(sprite.bottom, x, y + height - capHeight, null);
+    }
+
+    /** Draws the hand's letter centered on the note. */
+    void drawLabel(Graphics2D g, boolean left, int x, int y, int width, int height) {
+        if (scaled) {
+            String text = left ? "L" : "R";
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setFont(labelFont);
+            g.setColor(labelColor);
+            FontMetrics fm = g.getFontMetrics();
+            g.drawString(text, x + (width - fm.stringWidth(text)) / 2, y + (height + fm.getAscent()) / 2);
+            return;
+        }
+        if (leftLabel == null) {
+            leftLabel = renderLabel("L");
+            rightLabel = renderLabel("R");
+        }
+        BufferedImage label = left ? leftLabel : rightLabel;
+        int labelX = x + (width - label.getWidth()) / 2;
+        int baseline = y + (height + labelAscent) / 2;
+        g.drawImage(label, labelX, baseline - labelAscent, null);
+    }
+
+    private NoteSprite sprite(Color color, int width) {
+        long key = ((long) color.getRGB() << 32) | width;
+        NoteSprite sprite = sprites.get(key);
+        if (sprite == null) {
+            // One rounded rectangle with a body section, cut into its three parts
+            BufferedImage whole = renderRoundRect(color, width, 2 * capHeight + BODY_STRIP_HEIGHT);
+            sprite = new NoteSprite(
+                    copyRows(whole, 0, capHeight),
+                    copyRows(whole, capHeight, BODY_STRIP_HEIGHT),
+                    copyRows(whole, capHeight + BODY_STRIP_HEIGHT, capHeight));
+            sprites.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    private BufferedImage shortSprite(Color color, int width, int height) {
+        long key = ((long) color.getRGB() << 32) | ((long) height << 16) | width;
+        BufferedImage image = shortSprites.get(key);
+        if (image == null) {
+            image = renderRoundRect(color, width, height);
+            shortSprites.put(key, image);
+        }
+        return image;
+    }
+
+    private BufferedImage renderRoundRect(Color color, int width, int height) {
+        BufferedImage image = createImage(width, height);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(color);
+        g.fillRoundRect(0, 0, width, height, cornerArc, cornerArc);
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage copyRows(BufferedImage source, int fromY, int rows) {
+        BufferedImage image = createImage(source.getWidth(), rows);
+        Graphics2D g = image.createGraphics();
+        // Copy the pixels as they are, translucency included
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(source, 0, -fromY, null);
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage renderLabel(String text) {
+        BufferedImage probe = createImage(1, 1);
+        Graphics2D pg = probe.createGraphics();
+        pg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        FontMetrics fm = pg.getFontMetrics(labelFont);
+        pg.dispose();
+
+        labelAscent = fm.getAscent();
+        BufferedImage image = createImage(Math.max(1, fm.stringWidth(text)), Math.max(1, fm.getAscent() + fm.getDescent()));
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(labelFont);
+        g.setColor(labelColor);
+        g.drawString(text, 0, fm.getAscent());
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (config != null) {
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+}
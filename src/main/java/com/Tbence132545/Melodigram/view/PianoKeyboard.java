@@ -0,0 +1,146 @@
+package com.Tbence132545.Melodigram.view;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.Objects;
+
+import javax.swing.JComponent;
+
+/**
+ * The on-screen keyboard, painted as one component. Key positions come from a {@link KeyLayout} that is
+ * recomputed and republished when the component is resized; highlights are kept in an array indexed by note,
+ * and changing one repaints only that key's rectangle.
+ */
+public class PianoKeyboard extends JComponent {
+
+    private static final int WHITE_KEY_HEIGHT = 150;
+    private static final int BLACK_KEY_HEIGHT = 100;
+    private static final Color COLOR_KEY_BORDER = Color.BLACK;
+    private static final Color COLOR_LABEL = Color.DARK_GRAY;
+
+    private final int lowestNote;
+    private final int highestNote;
+    private final int middleCNote;
+    private final Font labelFont;
+
+    private volatile KeyLayout layout;
+    /** Each key's highlight, or null for its normal color. */
+    private final Color[] highlightColors = new Color[KeyLayout.NOTE_COUNT];
+    private final Rectangle dirty = new Rectangle();
+
+    public PianoKeyboard(int lowestNote, int highestNote, Font labelFont) {
+        this.lowestNote = lowestNote;
+        this.highestNote = highestNote;
+        this.middleCNote = findMiddleCNote(lowestNote, highestNote);
+        this.labelFont = labelFont;
+        this.layout = KeyLayout.compute(lowestNote, highestNote, 0);
+
+        setPreferredSize(new Dimension(800, WHITE_KEY_HEIGHT));
+        setOpaque(true);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                layout = KeyLayout.compute(lowestNote, highestNote, getWidth());
+                repaint();
+            }
+        });
+    }
+
+    /** The current key positions; safe to read from any thread. */
+    public KeyLayout getKeyLayout() {
+        return layout;
+    }
+
+    /** Colors the key, or restores its normal color when {@code color} is null. */
+    public void setKeyColor(int midiNote, Color color) {
+        if (!layout.contains(midiNote)) return;
+        if (Objects.equals(highlightColors[midiNote], color)) return;
+        highlightColors[midiNote] = color;
+        repaintKey(midiNote);
+    }
+
+    public void clearHighlights() {
+        for (int note = lowestNote; note <= highestNote; note++) {
+            if (highlightColors[note] != null) {
+                highlightColors[note] = null;
+                repaintKey(note);
+            }
+        }
+    }
+
+    private void repaintKey(int midiNote) {
+        KeyLayout keys = layout;
+        dirty.setBounds(keys.x(midiNote), 0, keys.width(midiNote), keys.isBlack(midiNote) ? BLACK_KEY_HEIGHT : WHITE_KEY_HEIGHT);
+        repaint(dirty);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        KeyLayout keys = layout;
+        // White keys first, so the black keys are drawn over them
+        for (int note = lowestNote; note <= highestNote; note++) {
+            if (!keys.isBlack(note) && intersectsClip(keys, note, WHITE_KEY_HEIGHT, clip)) {
+                paintKey(g, keys, note, WHITE_KEY_HEIGHT, Color.WHITE);
+                if (note == middleCNote) paintLabel(g, keys, note);
+            }
+        }
+        for (int note = lowestNote; note <= highestNote; note++) {
+            if (keys.isBlack(note) && intersectsClip(keys, note, BLACK_KEY_HEIGHT, clip)) {
+                paintKey(g, keys, note, BLACK_KEY_HEIGHT, Color.BLACK);
+            }
+        }
+    }
+
+    private static boolean intersectsClip(KeyLayout keys, int note, int height, Rectangle clip) {
+        int x = keys.x(note);
+        return x < clip.x + clip.width && x + keys.width(note) > clip.x && clip.y < height;
+    }
+
+    private void paintKey(Graphics g, KeyLayout keys, int note, int height, Color normal) {
+        int x = keys.x(note);
+        int width = keys.width(note);
+        Color highlight = highlightColors[note];
+        g.setColor(highlight != null ? highlight : normal);
+        g.fillRect(x, 0, width, height);
+        g.setColor(COLOR_KEY_BORDER);
+        g.drawRect(x, 0, width - 1, height - 1);
+    }
+
+    private void paintLabel(Graphics g, KeyLayout keys, int note) {
+        String text = "C" + ((note / 12) - 1);
+        g.setFont(labelFont);
+        g.setColor(COLOR_LABEL);
+        FontMetrics fm = g.getFontMetrics();
+        int textX = keys.x(note) + (keys.width(note) - fm.stringWidth(text)) / 2;
+        int textY = WHITE_KEY_HEIGHT - 1 - fm.getDescent();
+        g.drawString(text, textX, textY);
+    }
+
+    /** The C closest to the middle of the range, which gets an octave label; -1 if the range has no C. */
+    private static int findMiddleCNote(int lowestNote, int highestNote) {
+        int midNote = (lowestNote + highestNote) / 2;
+        int closestC = -1;
+        int minDiff = Integer.MAX_VALUE;
+        for (int i = lowestNote; i <= highestNote; i++) {
+            if (i % 12 == 0) { // C notes are multiples of 12
+                int diff = Math.abs(i - midNote);
+                if (diff < minDiff) {
+                    minDiff = diff;
+                    closestC = i;
+                }
+            }
+        }
+        return closestC;
+    }
+}
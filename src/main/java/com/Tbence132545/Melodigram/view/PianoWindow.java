@@ -6,8 +6,6 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.HashMap;
-import java.util.Map;
 
 public class PianoWindow extends JFrame {
 
@@ -19,15 +17,7 @@ public class PianoWindow extends JFrame {
     private static final Color COLOR_WHITE_KEY_HIGHLIGHT = new Color(255, 200, 100);
     private static final Color COLOR_BLACK_KEY_HIGHLIGHT = Color.RED;
 
-    private enum KeyType {
-        WHITE, BLACK;
-        private static final KeyType[] MIDI_PATTERN = {WHITE, BLACK, WHITE, BLACK, WHITE, WHITE, BLACK, WHITE, BLACK, WHITE, BLACK, WHITE};
-        public static KeyType fromMidiNote(int midiNote) {
-            return MIDI_PATTERN[midiNote % 12];
-        }
-    }
-
-    private final JLayeredPane pianoPanel;
+    private final PianoKeyboard keyboard;
     private final AnimationPanel animationPanel;
     private final JButton playButton;
     private final JButton backButton;
@@ -36,13 +26,8 @@ public class PianoWindow extends JFrame {
     private final JButton saveButton;
     private SeekBar seekBar;
 
-    private final Map<Integer, JButton> noteToKeyButton = new HashMap<>();
     private final int lowestNote;
     private final int highestNote;
-    private int whiteKeyWidth = 50;
-    private int blackKeyWidth = 30;
-    private static final int WHITE_KEY_HEIGHT = 150;
-    private static final int BLACK_KEY_HEIGHT = 100;
 
     public PianoWindow(int lowestNote, int highestNote) {
         this.lowestNote = Math.max(lowestNote, 0);
@@ -56,17 +41,14 @@ public class PianoWindow extends JFrame {
                 this.forwardButton = new JButton(">>"),
                 this.saveButton = new JButton("Save"));
 
-        this.pianoPanel = createPianoPanel();
-        this.animationPanel = new AnimationPanel(this::getKeyInfo, this.lowestNote, this.highestNote);
+        this.keyboard = new PianoKeyboard(this.lowestNote, this.highestNote, PIANO_LABEL_FONT);
+        this.animationPanel = new AnimationPanel(keyboard::getKeyLayout);
 
         JPanel pianoWithLine = createPianoWithLinePanel();
 
         add(controlPanel, BorderLayout.NORTH);
         add(animationPanel, BorderLayout.CENTER);
         add(pianoWithLine, BorderLayout.SOUTH);
-
-        setupComponentListeners();
-        updatePianoKeys();
     }
 
     private void initializeFrame() {
@@ -125,12 +107,6 @@ public class PianoWindow extends JFrame {
         return panel;
     }
 
-    private JLayeredPane createPianoPanel() {
-        JLayeredPane panel = new JLayeredPane();
-        panel.setPreferredSize(new Dimension(800, WHITE_KEY_HEIGHT));
-        return panel;
-    }
-
     private JPanel createPianoWithLinePanel() {
         JPanel redLinePanel = new JPanel();
         redLinePanel.setBackground(Color.RED);
@@ -138,100 +114,10 @@ public class PianoWindow extends JFrame {
 
         JPanel pianoWithLine = new JPanel(new BorderLayout());
         pianoWithLine.add(redLinePanel, BorderLayout.NORTH);
-        pianoWithLine.add(pianoPanel, BorderLayout.CENTER);
+        pianoWithLine.add(keyboard, BorderLayout.CENTER);
         return pianoWithLine;
     }
 
-    private void setupComponentListeners() {
-        addComponentListener(new java.awt.event.ComponentAdapter() {
-            public void componentResized(java.awt.event.ComponentEvent evt) {
-                updatePianoKeys();
-            }
-        });
-    }
-
-
-    private void updatePianoKeys() {
-        pianoPanel.removeAll();
-        noteToKeyButton.clear();
-
-        int whiteKeyCount = countWhiteKeys();
-        if (whiteKeyCount == 0) return;
-
-        int panelWidth = pianoPanel.getWidth() > 0 ? pianoPanel.getWidth() : getWidth();
-        whiteKeyWidth = panelWidth / whiteKeyCount;
-        blackKeyWidth = (int) (whiteKeyWidth * 0.6);
-        //I'm drawing the middle C notes' notation based on the range
-        int middleCNote = findMiddleCNote();
-
-        int whiteKeyIndex = 0;
-        for (int i = lowestNote; i <= highestNote; i++) {
-            KeyType keyType = KeyType.fromMidiNote(i);
-            JButton keyButton = createKeyButton(keyType);
-
-            if (keyType == KeyType.WHITE) {
-                addWhiteKey(keyButton, whiteKeyIndex, i == middleCNote,i);
-                whiteKeyIndex++;
-            } else {
-                addBlackKey(keyButton, whiteKeyIndex);
-            }
-            noteToKeyButton.put(i, keyButton);
-        }
-
-        pianoPanel.revalidate();
-        pianoPanel.repaint();
-    }
-
-    private int countWhiteKeys() {
-        int count = 0;
-        for (int i = lowestNote; i <= highestNote; i++) {
-            if (KeyType.fromMidiNote(i) == KeyType.WHITE) {
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private int findMiddleCNote() {
-        int midNote = (lowestNote + highestNote) / 2;
-        int closestC = -1;
-        int minDiff = Integer.MAX_VALUE;
-        for (int i = lowestNote; i <= highestNote; i++) {
-            if (i % 12 == 0) { // C notes are multiples of 12
-                int diff = Math.abs(i - midNote);
-                if (diff < minDiff) {
-                    minDiff = diff;
-                    closestC = i;
-                }
-            }
-        }
-        return closestC;
-    }
-
-    private void addWhiteKey(JButton keyButton, int whiteKeyIndex, boolean isMiddleC, int midiNote) {
-        keyButton.setBounds(whiteKeyIndex * whiteKeyWidth, 0, whiteKeyWidth, WHITE_KEY_HEIGHT);
-
-        if (isMiddleC) {
-            int octave = (midiNote / 12) - 1;
-            JLabel label = new JLabel("C" + octave, SwingConstants.CENTER);
-            label.setFont(PIANO_LABEL_FONT);
-            label.setOpaque(false);
-            label.setForeground(Color.DARK_GRAY);
-
-            keyButton.setLayout(new BorderLayout());
-            keyButton.add(label, BorderLayout.SOUTH);
-        }
-
-        pianoPanel.add(keyButton, JLayeredPane.DEFAULT_LAYER);
-    }
-
-    private void addBlackKey(JButton keyButton, int precedingWhiteKeyIndex) {
-        int x = (precedingWhiteKeyIndex - 1) * whiteKeyWidth + (whiteKeyWidth - blackKeyWidth / 2);
-        keyButton.setBounds(x, 0, blackKeyWidth, BLACK_KEY_HEIGHT);
-        pianoPanel.add(keyButton, JLayeredPane.PALETTE_LAYER);
-    }
-
-
     public void highlightNote(int midiNote) {
         setKeyColor(midiNote, true);
     }
@@ -241,8 +127,7 @@ public class PianoWindow extends JFrame {
     }
 
     public void releaseAllKeys() {
-        noteToKeyButton.keySet().forEach(this::releaseNote);
-        pianoPanel.repaint();
+        keyboard.clearHighlights();
     }
 
     public void addSeekBar(JComponent seekBarComponent) {
@@ -278,17 +163,8 @@ public class PianoWindow extends JFrame {
         return animationPanel;
     }
 
-    public record KeyInfo(boolean isBlack, int x, int width) {}
-
-    public KeyInfo getKeyInfo(int midiNote) {
-        JButton key = noteToKeyButton.get(midiNote);
-        if (key == null) return null;
-        boolean isBlack = (KeyType.fromMidiNote(midiNote) == KeyType.BLACK);
-        return new KeyInfo(isBlack, key.getX(), key.getWidth());
-    }
-
     public boolean isBlackKey(int midiNote) {
-        return KeyType.fromMidiNote(midiNote) == KeyType.BLACK;
+        return KeyLayout.isBlackKey(midiNote);
     }
 
     public void setPlayButtonListener(ActionListener listener) { playButton.addActionListener(listener); }
@@ -324,34 +200,19 @@ public class PianoWindow extends JFrame {
         };
     }
 
-    private JButton createKeyButton(KeyType keyType) {
-        JButton keyButton = new JButton();
-        keyButton.setFocusable(false);
-        keyButton.setOpaque(true);
-        keyButton.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-        keyButton.setBackground(keyType == KeyType.WHITE ? Color.WHITE : Color.BLACK);
-        return keyButton;
-    }
-
-
     private void setKeyColor(int midiNote, boolean isHighlighted) {
-        JButton key = noteToKeyButton.get(midiNote);
-        if (key == null) return;
+        if (!keyboard.getKeyLayout().contains(midiNote)) return;
 
-        KeyType keyType = KeyType.fromMidiNote(midiNote);
         if (isHighlighted) {
-
             Color assignedColor = animationPanel.getAssignedHighlightColor(midiNote);
 
             if (assignedColor != null) {
-                key.setBackground(assignedColor);
+                keyboard.setKeyColor(midiNote, assignedColor);
             } else {
-                key.setBackground(keyType == KeyType.WHITE ? COLOR_WHITE_KEY_HIGHLIGHT : COLOR_BLACK_KEY_HIGHLIGHT);
+                keyboard.setKeyColor(midiNote, KeyLayout.isBlackKey(midiNote) ? COLOR_BLACK_KEY_HIGHLIGHT : COLOR_WHITE_KEY_HIGHLIGHT);
             }
-
         } else {
-            key.setBackground(keyType == KeyType.WHITE ? Color.WHITE : Color.BLACK);
+            keyboard.setKeyColor(midiNote, null);
         }
-        key.repaint();
     }
 }
\ No newline at end of file
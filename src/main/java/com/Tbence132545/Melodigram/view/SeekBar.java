@@ -10,15 +10,16 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 
-import javax.sound.midi.Sequencer;
 import javax.swing.JComponent;
 import javax.swing.ToolTipManager;
 
+import com.Tbence132545.Melodigram.model.PlaybackClock;
+
 public class SeekBar extends JComponent {
     private double progress = 0.0;
     private boolean dragging = false;
-    private long durationMicros = 1;
-    private final Sequencer sequencer;
+    private final long durationMicros;
+    private final PlaybackClock clock;
     private SeekListener seekListener;
     private volatile boolean userInteractionEnabled = true;
 
@@ -26,8 +27,9 @@ public class SeekBar extends JComponent {
         void onSeek(long newMicroseconds);
     }
 
-    public SeekBar(Sequencer sequencer) {
-        this.sequencer = sequencer;
+    public SeekBar(PlaybackClock clock, long durationMicros) {
+        this.clock = clock;
+        this.durationMicros = Math.max(1, durationMicros);
 
         setPreferredSize(new Dimension(600, 50));
 
@@ -53,15 +55,9 @@ public class SeekBar extends JComponent {
             @Override
             public void mouseReleased(MouseEvent e) {
                 if (!isInteractionAllowed()) return;
-                if (sequencer != null && sequencer.getSequence() != null) {
-                    long newTime = (long) (progress * durationMicros);
-                    try {
-                        sequencer.setMicrosecondPosition(newTime);
-                    } catch (Exception ignored) {
-                    }
-                    if (seekListener != null) {
-                        seekListener.onSeek(newTime);
-                    }
+                long newTime = (long) (progress * durationMicros);
+                if (seekListener != null) {
+                    seekListener.onSeek(newTime);
                 }
                 dragging = false;
                 repaint();
@@ -94,10 +90,8 @@ public class SeekBar extends JComponent {
     }
 
     public void updateProgress() {
-        if (!dragging && sequencer != null && sequencer.getSequence() != null) {
-            durationMicros = sequencer.getMicrosecondLength();
-            long currentMicros = sequencer.getMicrosecondPosition();
-            progress = clamp((double) currentMicros / durationMicros);
+        if (!dragging) {
+            progress = clamp((double) clock.getMicros() / durationMicros);
             repaint();
         }
     }
@@ -107,7 +101,7 @@ public class SeekBar extends JComponent {
     }
 
     private double clamp(double val) {
-        return Math.min(0, Math.max(1, val));
+        return Math.max(0, Math.min(1, val));
     }
 
     @Override
@@ -0,0 +1,80 @@
+package com.Tbence132545.Melodigram.view;
+
+import com.Tbence132545.Melodigram.model.MidiFileService;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionListener;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shows the stages of opening a song while they run in the background, with a button to cancel.
+ * All methods must be called on the EDT.
+ */
+public class SongLoadingDialog extends JDialog {
+
+    private static final Color PENDING_COLOR = new Color(130, 130, 130);
+    private static final Color RUNNING_COLOR = Color.WHITE;
+    private static final Color DONE_COLOR = new Color(200, 60, 60);
+
+    private final Map<MidiFileService.OpenStage, JLabel> stageLabels = new EnumMap<>(MidiFileService.OpenStage.class);
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
+    private int finishedStages = 0;
+
+    public SongLoadingDialog(JFrame owner, String songName) {
+        super(owner, "Opening " + songName, false);
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 20, 15, 20));
+        panel.setBackground(Color.BLACK);
+
+        JPanel stagesPanel = new JPanel(new GridLayout(0, 1, 0, 4));
+        stagesPanel.setOpaque(false);
+        for (MidiFileService.OpenStage stage : MidiFileService.OpenStage.values()) {
+            JLabel label = new JLabel(stage.getLabel());
+            label.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            label.setForeground(PENDING_COLOR);
+            stageLabels.put(stage, label);
+            stagesPanel.add(label);
+        }
+
+        progressBar = new JProgressBar(0, MidiFileService.OpenStage.values().length);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFocusPainted(false);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 0));
+        bottomPanel.setOpaque(false);
+        bottomPanel.add(progressBar, BorderLayout.CENTER);
+        bottomPanel.add(cancelButton, BorderLayout.EAST);
+
+        panel.add(stagesPanel, BorderLayout.CENTER);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        pack();
+        setMinimumSize(new Dimension(360, getHeight()));
+        setLocationRelativeTo(owner);
+    }
+
+    public void setCancelListener(ActionListener listener) {
+        cancelButton.addActionListener(listener);
+    }
+
+    public void stageStarted(MidiFileService.OpenStage stage) {
+        JLabel label = stageLabels.get(stage);
+        if (label.getForeground() == PENDING_COLOR) {
+            label.setText(stage.getLabel() + "...");
+            label.setForeground(RUNNING_COLOR);
+        }
+    }
+
+    public void stageFinished(MidiFileService.OpenStage stage) {
+        JLabel label = stageLabels.get(stage);
+        if (label.getForeground() == DONE_COLOR) return;
+        label.setText(stage.getLabel() + " ✓");
+        label.setForeground(DONE_COLOR);
+        progressBar.setValue(++finishedStages);
+    }
+}